@@ -6,43 +6,49 @@
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class SecretEntrance {
 
+    private static final int DEFAULT_DIAL_SIZE = 100;
+    private static final int DEFAULT_START_POS = 50;
+    // Largest array the JVM will allocate; per-start tables cannot grow past it.
+    private static final int MAX_TABLE_DIAL_SIZE = Integer.MAX_VALUE - 8;
+
     // ------------------------ main logic start ------------------------
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
+    private static void solve(FastScanner sc, FastOutput out, int dialSize, int startPos) throws Exception {
         // AoC inputs typically don't start with a test case count.
         // We just read tokens until the stream ends.
         
-        int currentPos = 50;
+        int currentPos = startPos;
         int zeroHits = 0;
         int instructionCount = 0;
-        final int DIAL_SIZE = 100;
 
-        while (true) {
-            String instruction = sc.next();
-            // FastScanner returns empty string on EOF
-            if (instruction == null || instruction.isEmpty()) break;
-            
+        // nextRotation() parses straight out of the scanner's byte buffer,
+        // so nothing is allocated per instruction.
+        while (sc.nextRotation()) {
             instructionCount++;
 
-            char direction = instruction.charAt(0);
+            int direction = sc.direction;
             
-            // Parse amount and immediately modulo by DIAL_SIZE.
+            // Take the amount modulo the dial size right away.
             // This handles very large numbers (rotations > 100) and prevents integer overflow.
-            int amount = Integer.parseInt(instruction.substring(1));
-            amount = amount % DIAL_SIZE;
+            int amount = (int) (sc.amount % dialSize);
 
             if (direction == 'R') {
                 // Right rotation (Clockwise / Ascending)
-                currentPos = (currentPos + amount) % DIAL_SIZE;
+                // In long: on a dial above 2^30 the sum can overflow an int.
+                currentPos = (int) (((long) currentPos + amount) % dialSize);
             } else if (direction == 'L') {
                 // Left rotation (Counter-Clockwise / Descending)
-                currentPos = (currentPos - amount) % DIAL_SIZE;
+                currentPos = (currentPos - amount) % dialSize;
                 // Java's % can return negative values for negative dividends
-                if (currentPos < 0) currentPos += DIAL_SIZE;
+                if (currentPos < 0) currentPos += dialSize;
             }
 
             if (currentPos == 0) {
@@ -58,14 +64,318 @@ public class SecretEntrance {
 
     // ------------------------ main logic end ------------------------
 
+    // ------------------------ parallel mode ------------------------
+
+    // Usage: java SecretEntrance --parallel input.txt
+    //
+    // Every rotation just shifts the dial, so a chunk of instructions can be summarized
+    // without knowing where the dial starts: for each of the dialSize start positions we
+    // record how many times the dial lands on 0 and where it ends up. Summaries of
+    // neighbouring chunks compose in order, so the file is split at whitespace
+    // boundaries, the chunks are summarized on a ForkJoinPool and the tables are
+    // combined left to right. The answer is the combined table's entry for startPos.
+
+    // Bytes per leaf chunk. Each leaf is memory-mapped on its own, so files larger
+    // than 2 GB are fine.
+    private static final long PARALLEL_CHUNK = 1 << 24;
+
+    private static void solveParallel(Path file, FastOutput out, int dialSize, int startPos) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DialSummary summary = ForkJoinPool.commonPool().invoke(new ChunkTask(channel, 0, channel.size(), dialSize));
+            System.err.println("Debug: Processed " + summary.instructions + " instructions.");
+            out.println(summary.hits[startPos]);
+        }
+    }
+
+    static final class DialSummary {
+        // Net clockwise rotation of the chunk; the end position for start s is (s + shift) % dialSize.
+        final int shift;
+        // hits[s] = number of times the dial lands on 0 when the chunk starts at s.
+        // Its length is the dial size.
+        final long[] hits;
+        final long instructions;
+
+        DialSummary(int shift, long[] hits, long instructions) {
+            this.shift = shift;
+            this.hits = hits;
+            this.instructions = instructions;
+        }
+
+        int endPosition(int start) {
+            return (int) (((long) start + shift) % hits.length);
+        }
+
+        // Summary of this chunk followed by next.
+        DialSummary then(DialSummary next) {
+            int dialSize = hits.length;
+            long[] combined = new long[dialSize];
+            for (int s = 0; s < dialSize; s++) {
+                combined[s] = hits[s] + next.hits[endPosition(s)];
+            }
+            return new DialSummary((int) (((long) shift + next.shift) % dialSize), combined, instructions + next.instructions);
+        }
+    }
+
+    static final class DialSummarizer {
+        private final int dialSize;
+        private final long[] hits;
+        private int shift = 0;
+        private long instructions = 0;
+
+        DialSummarizer(int dialSize) {
+            this.dialSize = dialSize;
+            this.hits = new long[dialSize];
+        }
+
+        void rotate(int direction, long amount) {
+            instructions++;
+            int rem = (int) (amount % dialSize);
+            if (direction == 'R') {
+                shift = (int) (((long) shift + rem) % dialSize);
+            } else if (direction == 'L') {
+                shift = (int) (((long) shift - rem + dialSize) % dialSize);
+            }
+            // The dial now sits at (s + shift) % dialSize, which is 0 for exactly one start s.
+            hits[(dialSize - shift) % dialSize]++;
+        }
+
+        DialSummary finish() {
+            return new DialSummary(shift, hits.clone(), instructions);
+        }
+    }
+
+    static DialSummary summarize(ByteBuffer buf, int dialSize) {
+        DialSummarizer summarizer = new DialSummarizer(dialSize);
+        int i = buf.position();
+        int limit = buf.limit();
+        while (i < limit) {
+            int direction = buf.get(i++);
+            if (direction <= ' ') continue;
+
+            long amount = 0;
+            while (i < limit) {
+                int c = buf.get(i);
+                if (c < '0' || c > '9') break;
+                amount = amount * 10 + (c - '0');
+                i++;
+            }
+            // Skip whatever is left of the token, like next() would.
+            while (i < limit && buf.get(i) > ' ') i++;
+
+            summarizer.rotate(direction, amount);
+        }
+        return summarizer.finish();
+    }
+
+    static final class ChunkTask extends RecursiveTask<DialSummary> {
+        private final FileChannel channel;
+        private final long from, to;
+        private final int dialSize;
+
+        ChunkTask(FileChannel channel, long from, long to, int dialSize) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.dialSize = dialSize;
+        }
+
+        @Override
+        protected DialSummary compute() {
+            try {
+                long mid = to - from <= PARALLEL_CHUNK ? to : nextBoundary(from + (to - from) / 2);
+                if (mid >= to) {
+                    return summarize(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), dialSize);
+                }
+                ChunkTask left = new ChunkTask(channel, from, mid, dialSize);
+                left.fork();
+                DialSummary right = new ChunkTask(channel, mid, to, dialSize).compute();
+                return left.join().then(right);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // First offset after pos that follows a whitespace byte, so no token is cut in two.
+        private long nextBoundary(long pos) throws IOException {
+            ByteBuffer probe = ByteBuffer.allocate(256);
+            while (pos < to) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                if (n <= 0) break;
+                for (int i = 0; i < n && pos + i < to; i++) {
+                    if (probe.get(i) <= ' ') return pos + i + 1;
+                }
+                pos += n;
+            }
+            return to;
+        }
+    }
+
+    // ------------------------ sweep mode ------------------------
+
+    // Usage: java SecretEntrance --sweep < input.txt
+    //
+    // Prints "start hits" for every start position in one pass. The summarizer used by
+    // the parallel engine already counts landings on 0 for all dialSize starts at once,
+    // so the whole input is just summarized as a single chunk.
+    private static void solveSweep(FastScanner sc, FastOutput out, int dialSize) throws Exception {
+        DialSummarizer summarizer = new DialSummarizer(dialSize);
+        while (sc.nextRotation()) {
+            summarizer.rotate(sc.direction, sc.amount);
+        }
+        DialSummary summary = summarizer.finish();
+        for (int s = 0; s < dialSize; s++) {
+            out.print(s);
+            out.print(' ');
+            out.println(summary.hits[s]);
+        }
+    }
+
+    // ------------------------ batch mode ------------------------
+
+    // Usage: java SecretEntrance --batch 100,360:0,12:7 < input.txt
+    //
+    // Runs one dial per "size[:start]" entry (start defaults to --start, or 50) over a
+    // single parse of the input and prints "size start hits" per dial. Instructions
+    // are parsed into primitive blocks, then every dial advances through the block in
+    // lock-step over structure-of-arrays lanes with a branch-free update, so the JIT
+    // can keep the inner lane loop tight.
+
+    private static final int BATCH_BLOCK = 4096;
+
+    private static void solveBatch(FastScanner sc, FastOutput out, int[] sizes, int[] starts) throws Exception {
+        int lanes = sizes.length;
+        int[] pos = starts.clone();
+        long[] hits = new long[lanes];
+
+        // Clockwise amount per instruction: -amount for L, 0 for anything else.
+        long[] deltas = new long[BATCH_BLOCK];
+        boolean more = true;
+        while (more) {
+            int n = 0;
+            while (n < BATCH_BLOCK && (more = sc.nextRotation())) {
+                int direction = sc.direction;
+                deltas[n++] = direction == 'R' ? sc.amount : direction == 'L' ? -sc.amount : 0;
+            }
+            for (int i = 0; i < n; i++) {
+                long delta = deltas[i];
+                for (int lane = 0; lane < lanes; lane++) {
+                    int size = sizes[lane];
+                    int p = (int) ((pos[lane] + delta % size + size) % size);
+                    pos[lane] = p;
+                    hits[lane] += p == 0 ? 1 : 0;
+                }
+            }
+        }
+
+        for (int lane = 0; lane < lanes; lane++) {
+            out.print(sizes[lane]);
+            out.print(' ');
+            out.print(starts[lane]);
+            out.print(' ');
+            out.println(hits[lane]);
+        }
+    }
+
+    // Usage: java SecretEntrance [--dial N] [--start S] [--parallel FILE | --sweep | --batch SPEC]
     public static void main(String[] args) {
+        int dialSize = DEFAULT_DIAL_SIZE;
+        int startPos = DEFAULT_START_POS;
+        String mode = "";
+        String modeArg = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dial":
+                    dialSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--start":
+                    startPos = Integer.parseInt(args[++i]);
+                    break;
+                case "--parallel":
+                case "--batch":
+                    mode = args[i];
+                    modeArg = args[++i];
+                    break;
+                case "--sweep":
+                    mode = args[i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        if (mode.equals("--batch")) {
+            String[] specs = modeArg.split(",");
+            int[] sizes = new int[specs.length];
+            int[] starts = new int[specs.length];
+            for (int i = 0; i < specs.length; i++) {
+                String[] parts = specs[i].split(":");
+                sizes[i] = Integer.parseInt(parts[0]);
+                starts[i] = parts.length > 1 ? Integer.parseInt(parts[1]) : startPos;
+                checkDial(sizes[i], starts[i]);
+            }
+            try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
+                solveBatch(sc, out, sizes, starts);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        checkDial(dialSize, startPos);
+        checkTables(mode, dialSize);
+        if (mode.equals("--parallel")) {
+            try (FastOutput out = new FastOutput()) {
+                solveParallel(Paths.get(modeArg), out, dialSize, startPos);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            if (mode.equals("--sweep")) {
+                solveSweep(sc, out, dialSize);
+            } else {
+                solve(sc, out, dialSize, startPos);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private static void checkDial(int dialSize, int startPos) {
+        if (dialSize < 1 || startPos < 0 || startPos >= dialSize) {
+            throw new IllegalArgumentException(
+                    "Start position " + startPos + " is not on a dial of size " + dialSize + ".");
+        }
+    }
+
+    // The per-start-table modes keep one long per dial position in every table, and
+    // several tables are alive at once, so a huge dial that the sequential and batch
+    // modes handle fine can be out of reach for them. Fail up front instead of running
+    // out of memory halfway through the input.
+    private static void checkTables(String mode, int dialSize) {
+        int tables;
+        switch (mode) {
+            case "--parallel":
+                // Each busy worker holds a summarizer, its finished summary and a combined table.
+                tables = 3 * (ForkJoinPool.commonPool().getParallelism() + 1);
+                break;
+            case "--sweep":
+                tables = 2;
+                break;
+            default:
+                return;
+        }
+        long bytes = (long) dialSize * Long.BYTES * tables;
+        long budget = Runtime.getRuntime().maxMemory() / 2;
+        if (dialSize > MAX_TABLE_DIAL_SIZE || bytes > budget) {
+            throw new IllegalArgumentException("Dial size " + dialSize + " is too large for " + mode
+                    + ": it needs " + tables + " tables of " + dialSize + " longs (" + (bytes >> 20)
+                    + " MB) but only " + (budget >> 20) + " MB can go to them. Use the default mode or --batch.");
+        }
+    }
+
     // ------------------------ Utility Methods ------------------------
 
     static int gcd(int a, int b) {
@@ -239,6 +549,26 @@ public class SecretEntrance {
             return buffer[ptr++];
         }
 
+        // Last rotation read by nextRotation()
+        int direction;
+        long amount;
+
+        // Reads a token like "R48" into direction/amount without building a String.
+        // Returns false at end of input.
+        boolean nextRotation() throws IOException {
+            int c;
+            while ((c = readByte()) != -1 && c <= ' ');
+            if (c == -1) return false;
+            direction = c;
+            long val = 0;
+            while ((c = readByte()) >= '0' && c <= '9') {
+                val = val * 10 + (c - '0');
+            }
+            while (c > ' ') c = readByte();
+            amount = val;
+            return true;
+        }
+
         String next() throws IOException {
             StringBuilder sb = new StringBuilder();
             int c;
@@ -6,39 +6,42 @@
  */
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class SecretEntrance2 {
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
-        long totalHits = 0;
-        int currentPos = 50;
-        final int DIAL_SIZE = 100;
+    private static final int DEFAULT_DIAL_SIZE = 100;
+    private static final int DEFAULT_START_POS = 50;
+    // Largest array the JVM will allocate; per-start tables cannot grow past it.
+    private static final int MAX_TABLE_DIAL_SIZE = Integer.MAX_VALUE - 8;
 
-        while (true) {
-            String line = sc.nextLine();
-            if (line == null) break; 
-            
-            line = line.trim();
-            if (line.isEmpty()) continue;
+    private static void solve(FastScanner sc, FastOutput out, int dialSize, int startPos) throws Exception {
+        long totalHits = 0;
+        int currentPos = startPos;
 
-            char direction = line.charAt(0);
-            long amount = Long.parseLong(line.substring(1));
+        while (sc.nextRotation()) {
+            int direction = sc.direction;
+            long amount = sc.amount;
 
             // 1. Count hits from full rotations (every 360 spin passes 0 once)
-            totalHits += amount / DIAL_SIZE;
+            totalHits += amount / dialSize;
 
             // 2. Simulate the remaining partial rotation
-            int rem = (int) (amount % DIAL_SIZE);
+            int rem = (int) (amount % dialSize);
 
             if (direction == 'R') {
                 // Right (Clockwise): numbers increase (e.g. 50 -> 99 -> 0 -> 10)
                 // We hit 0 if the rotation takes us past the 99->0 boundary.
                 // Effectively, if current + remainder >= 100, we wrapped.
-                if (currentPos + rem >= DIAL_SIZE) {
+                // In long: on a dial above 2^30 the sum can overflow an int.
+                if ((long) currentPos + rem >= dialSize) {
                     totalHits++;
                 }
-                currentPos = (currentPos + rem) % DIAL_SIZE;
+                currentPos = (int) (((long) currentPos + rem) % dialSize);
 
             } else if (direction == 'L') {
                 // Left (Counter-Clockwise): numbers decrease (e.g. 10 -> 0 -> 99 -> 50)
@@ -50,9 +53,9 @@ public class SecretEntrance2 {
                 }
                 
                 // Update position (handle negative modulo in Java)
-                currentPos = (currentPos - rem) % DIAL_SIZE;
+                currentPos = (currentPos - rem) % dialSize;
                 if (currentPos < 0) {
-                    currentPos += DIAL_SIZE;
+                    currentPos += dialSize;
                 }
             }
         }
@@ -60,23 +63,580 @@ public class SecretEntrance2 {
         out.println(totalHits);
     }
 
+    // ------------------------ parallel mode ------------------------
+
+    // Usage: java SecretEntrance2 --parallel input.txt
+    //
+    // A rotation shifts the dial by the same amount whatever the start position, so a
+    // chunk of instructions can be summarized as a table over all dialSize start
+    // positions: how many times 0 is passed, and where the dial ends. Tables of
+    // neighbouring chunks compose in order, so chunks are summarized on a ForkJoinPool
+    // and combined left to right.
+
+    private static final long PARALLEL_CHUNK = 1 << 24;
+
+    private static void solveParallel(Path file, FastOutput out, int dialSize, int startPos) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DialSummary summary = ForkJoinPool.commonPool().invoke(new ChunkTask(channel, 0, channel.size(), dialSize));
+            out.println(summary.hits[startPos]);
+        }
+    }
+
+    static final class DialSummary {
+        // End position for start s is (s + shift) % dialSize.
+        final int shift;
+        // hits[s] = zero passes when the chunk starts at s. Its length is the dial size.
+        final long[] hits;
+
+        DialSummary(int shift, long[] hits) {
+            this.shift = shift;
+            this.hits = hits;
+        }
+
+        int endPosition(int start) {
+            return (int) (((long) start + shift) % hits.length);
+        }
+
+        DialSummary then(DialSummary next) {
+            int dialSize = hits.length;
+            long[] combined = new long[dialSize];
+            for (int s = 0; s < dialSize; s++) {
+                combined[s] = hits[s] + next.hits[endPosition(s)];
+            }
+            return new DialSummary((int) (((long) shift + next.shift) % dialSize), combined);
+        }
+    }
+
+    static final class DialSummarizer {
+        // Full turns hit 0 from every start; the partial turn only hits it from a
+        // contiguous (circular) run of positions, which we record in a difference array.
+        private final int dialSize;
+        private long fullTurns = 0;
+        private final long[] diff;
+        private int shift = 0;
+
+        DialSummarizer(int dialSize) {
+            this.dialSize = dialSize;
+            this.diff = new long[dialSize + 1];
+        }
+
+        void rotate(int direction, long amount) {
+            fullTurns += amount / dialSize;
+            int rem = (int) (amount % dialSize);
+            if (rem == 0) return;
+
+            if (direction == 'R') {
+                // Same rule as solve(): position + rem >= dialSize
+                addPositions(dialSize - rem, dialSize - 1);
+                shift = (int) (((long) shift + rem) % dialSize);
+            } else if (direction == 'L') {
+                // Same rule as solve(): 0 < position <= rem
+                addPositions(1, rem);
+                shift = (int) (((long) shift - rem + dialSize) % dialSize);
+            }
+        }
+
+        // Counts a hit for every start s whose current position (s + shift) lies in [lo, hi].
+        private void addPositions(int lo, int hi) {
+            int from = Math.floorMod(lo - shift, dialSize);
+            int to = Math.floorMod(hi - shift, dialSize);
+            if (from <= to) {
+                diff[from]++;
+                diff[to + 1]--;
+            } else {
+                diff[0]++;
+                diff[to + 1]--;
+                diff[from]++;
+                diff[dialSize]--;
+            }
+        }
+
+        DialSummary finish() {
+            long[] hits = new long[dialSize];
+            long running = 0;
+            for (int s = 0; s < dialSize; s++) {
+                running += diff[s];
+                hits[s] = fullTurns + running;
+            }
+            return new DialSummary(shift, hits);
+        }
+    }
+
+    static DialSummary summarize(ByteBuffer buf, int dialSize) {
+        DialSummarizer summarizer = new DialSummarizer(dialSize);
+        int i = buf.position();
+        int limit = buf.limit();
+        while (i < limit) {
+            int direction = buf.get(i++);
+            if (direction <= ' ') continue;
+
+            long amount = 0;
+            while (i < limit) {
+                int c = buf.get(i);
+                if (c < '0' || c > '9') break;
+                amount = amount * 10 + (c - '0');
+                i++;
+            }
+            while (i < limit && buf.get(i) != '\n') i++;
+
+            summarizer.rotate(direction, amount);
+        }
+        return summarizer.finish();
+    }
+
+    static final class ChunkTask extends RecursiveTask<DialSummary> {
+        private final FileChannel channel;
+        private final long from, to;
+        private final int dialSize;
+
+        ChunkTask(FileChannel channel, long from, long to, int dialSize) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.dialSize = dialSize;
+        }
+
+        @Override
+        protected DialSummary compute() {
+            try {
+                long mid = to - from <= PARALLEL_CHUNK ? to : nextLineStart(from + (to - from) / 2);
+                if (mid >= to) {
+                    return summarize(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), dialSize);
+                }
+                ChunkTask left = new ChunkTask(channel, from, mid, dialSize);
+                left.fork();
+                DialSummary right = new ChunkTask(channel, mid, to, dialSize).compute();
+                return left.join().then(right);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long nextLineStart(long pos) throws IOException {
+            ByteBuffer probe = ByteBuffer.allocate(256);
+            while (pos < to) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                if (n <= 0) break;
+                for (int i = 0; i < n && pos + i < to; i++) {
+                    if (probe.get(i) == '\n') return pos + i + 1;
+                }
+                pos += n;
+            }
+            return to;
+        }
+    }
+
+    // ------------------------ sweep mode ------------------------
+
+    // Usage: java SecretEntrance2 --sweep < input.txt
+    //
+    // Prints "start hits" for every start position in one pass. The summarizer used by
+    // the parallel engine already counts zero passes for all dialSize starts at once,
+    // so the whole input is just summarized as a single chunk.
+    private static void solveSweep(FastScanner sc, FastOutput out, int dialSize) throws Exception {
+        DialSummarizer summarizer = new DialSummarizer(dialSize);
+        while (sc.nextRotation()) {
+            summarizer.rotate(sc.direction, sc.amount);
+        }
+        DialSummary summary = summarizer.finish();
+        for (int s = 0; s < dialSize; s++) {
+            out.println(s + " " + summary.hits[s]);
+        }
+    }
+
+    // ------------------------ indexed mode ------------------------
+
+    // Usage: java SecretEntrance2 --index input.txt < queries.txt
+    //
+    // Loads the rotation log into a DialIndex once, then answers one query per line:
+    //   pos k      dial position after instruction k (k = 0 is the start position)
+    //   hits i j   zero passes during instructions i..j (1-based, inclusive)
+    //   add L68    append an instruction to the log
+    private static void solveIndexed(Path file, FastOutput out, int dialSize, int startPos) throws Exception {
+        checkTables("--index", dialSize, countInstructions(file));
+        DialIndex index = new DialIndex(dialSize, startPos);
+        try (FastScanner log = new FastScanner(Files.newInputStream(file))) {
+            while (log.nextRotation()) {
+                index.append(log.direction, log.amount);
+            }
+        }
+
+        BufferedReader queries = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = queries.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            switch (parts[0]) {
+                case "":
+                    break;
+                case "pos":
+                    out.println(index.positionAfter(Integer.parseInt(parts[1])));
+                    break;
+                case "hits":
+                    out.println(index.hitsBetween(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                    break;
+                case "add":
+                    index.append(parts[1].charAt(0), Long.parseLong(parts[1].substring(1)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown query: " + line);
+            }
+        }
+    }
+
+    // One cheap pass over the log, so the index's table count is known before it is built.
+    private static long countInstructions(Path file) throws IOException {
+        long count = 0;
+        try (FastScanner log = new FastScanner(Files.newInputStream(file))) {
+            while (log.nextRotation()) count++;
+        }
+        return count;
+    }
+
+    // Segment tree of DialSummary tables over fixed-size blocks of instructions.
+    //
+    // Level 0 holds one summary per complete block, level l one per aligned group of
+    // 2^l blocks. Appending only ever adds nodes on the right edge, so the tree grows
+    // without being rebuilt. A query walks O(log n) nodes, reading a single table entry
+    // from each, and replays at most two partial blocks at the ends of the range.
+    // Not thread-safe.
+    static final class DialIndex {
+        private static final int BLOCK = 256;
+
+        private final int dialSize;
+        private final int startPos;
+        private byte[] directions = new byte[BLOCK];
+        private long[] amounts = new long[BLOCK];
+        private int size = 0;
+        private final List<List<DialSummary>> levels = new ArrayList<>();
+        private final DialSummary[] pendingRight = new DialSummary[64];
+
+        // Dial position at the end of the last walk()
+        private int walkPos;
+
+        DialIndex(int dialSize, int startPos) {
+            this.dialSize = dialSize;
+            this.startPos = startPos;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void append(int direction, long amount) {
+            if (size == amounts.length) {
+                directions = Arrays.copyOf(directions, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            directions[size] = (byte) direction;
+            amounts[size] = amount;
+            size++;
+            if (size % BLOCK == 0) {
+                DialSummarizer block = new DialSummarizer(dialSize);
+                for (int i = size - BLOCK; i < size; i++) {
+                    block.rotate(directions[i], amounts[i]);
+                }
+                addNode(0, block.finish());
+            }
+        }
+
+        // Pushes a node onto a level and merges it with its left sibling, if it has one.
+        private void addNode(int level, DialSummary node) {
+            while (true) {
+                if (levels.size() == level) levels.add(new ArrayList<>());
+                List<DialSummary> nodes = levels.get(level);
+                nodes.add(node);
+                int idx = nodes.size() - 1;
+                if ((idx & 1) == 0) return;
+                node = nodes.get(idx - 1).then(node);
+                level++;
+            }
+        }
+
+        int positionAfter(int k) {
+            checkRange(0, k);
+            walk(startPos, 0, k);
+            return walkPos;
+        }
+
+        long hitsBetween(int i, int j) {
+            if (i < 1) throw new IllegalArgumentException("Instructions are numbered from 1, got " + i + ".");
+            checkRange(i - 1, j);
+            walk(startPos, 0, i - 1);
+            return walk(walkPos, i - 1, j);
+        }
+
+        private void checkRange(int from, int to) {
+            if (from > to || to > size) {
+                throw new IllegalArgumentException(
+                        "Range " + from + ".." + to + " is outside the " + size + " indexed instructions.");
+            }
+        }
+
+        // Applies instructions [from, to) starting at pos; returns the zero passes and
+        // leaves the final position in walkPos.
+        private long walk(int pos, int from, int to) {
+            int firstBlock = (from + BLOCK - 1) / BLOCK;
+            int lastBlock = to / BLOCK;
+            if (firstBlock >= lastBlock) {
+                return replay(pos, from, to);
+            }
+
+            long hits = replay(pos, from, firstBlock * BLOCK);
+            pos = walkPos;
+
+            // Bottom-up segment tree query over blocks [firstBlock, lastBlock). Left-side
+            // nodes are applied as they are found; right-side ones come out in reverse order.
+            int l = firstBlock, r = lastBlock, level = 0, pending = 0;
+            while (l < r) {
+                List<DialSummary> nodes = levels.get(level);
+                if ((l & 1) == 1) {
+                    DialSummary node = nodes.get(l++);
+                    hits += node.hits[pos];
+                    pos = node.endPosition(pos);
+                }
+                if ((r & 1) == 1) {
+                    pendingRight[pending++] = nodes.get(--r);
+                }
+                l >>= 1;
+                r >>= 1;
+                level++;
+            }
+            while (pending > 0) {
+                DialSummary node = pendingRight[--pending];
+                hits += node.hits[pos];
+                pos = node.endPosition(pos);
+            }
+
+            return hits + replay(pos, lastBlock * BLOCK, to);
+        }
+
+        private long replay(int pos, int from, int to) {
+            long hits = 0;
+            for (int i = from; i < to; i++) {
+                long amount = amounts[i];
+                hits += amount / dialSize;
+                int rem = (int) (amount % dialSize);
+                if (directions[i] == 'R') {
+                    if ((long) pos + rem >= dialSize) hits++;
+                    pos = (int) (((long) pos + rem) % dialSize);
+                } else if (directions[i] == 'L') {
+                    if (pos > 0 && rem >= pos) hits++;
+                    pos = (int) (((long) pos - rem + dialSize) % dialSize);
+                }
+            }
+            walkPos = pos;
+            return hits;
+        }
+    }
+
+    // ------------------------ batch mode ------------------------
+
+    // Usage: java SecretEntrance2 --batch 100,360:0,12:7 < input.txt
+    //
+    // Runs one dial per "size[:start]" entry (start defaults to --start, or 50) over a
+    // single parse of the input and prints "size start hits" per dial. Instructions are
+    // parsed into primitive blocks, then all dials step through each block in lock-step
+    // over structure-of-arrays lanes with a branch-free update.
+
+    private static final int BATCH_BLOCK = 4096;
+
+    private static void solveBatch(FastScanner sc, FastOutput out, int[] sizes, int[] starts) throws Exception {
+        int lanes = sizes.length;
+        int[] pos = starts.clone();
+        long[] hits = new long[lanes];
+
+        // 1 for R, -1 for L, 0 for anything else
+        int[] signs = new int[BATCH_BLOCK];
+        long[] amounts = new long[BATCH_BLOCK];
+        boolean more = true;
+        while (more) {
+            int n = 0;
+            while (n < BATCH_BLOCK && (more = sc.nextRotation())) {
+                int direction = sc.direction;
+                signs[n] = direction == 'R' ? 1 : direction == 'L' ? -1 : 0;
+                amounts[n++] = sc.amount;
+            }
+            for (int i = 0; i < n; i++) {
+                int sign = signs[i];
+                long amount = amounts[i];
+                for (int lane = 0; lane < lanes; lane++) {
+                    int size = sizes[lane];
+                    int p = pos[lane];
+                    int rem = (int) (amount % size);
+                    // Same rules as solve(): R passes 0 when p + rem >= size, L when 0 < p <= rem.
+                    boolean passes = sign > 0 ? (long) p + rem >= size : sign < 0 && p > 0 && rem >= p;
+                    hits[lane] += amount / size + (passes ? 1 : 0);
+                    pos[lane] = (int) (((long) p + (long) sign * rem + size) % size);
+                }
+            }
+        }
+
+        for (int lane = 0; lane < lanes; lane++) {
+            out.println(sizes[lane] + " " + starts[lane] + " " + hits[lane]);
+        }
+    }
+
+    // Usage: java SecretEntrance2 [--dial N] [--start S] [--parallel FILE | --index FILE | --sweep | --batch SPEC]
     public static void main(String[] args) {
+        int dialSize = DEFAULT_DIAL_SIZE;
+        int startPos = DEFAULT_START_POS;
+        String mode = "";
+        String modeArg = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dial":
+                    dialSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--start":
+                    startPos = Integer.parseInt(args[++i]);
+                    break;
+                case "--parallel":
+                case "--index":
+                case "--batch":
+                    mode = args[i];
+                    modeArg = args[++i];
+                    break;
+                case "--sweep":
+                    mode = args[i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        if (mode.equals("--batch")) {
+            String[] specs = modeArg.split(",");
+            int[] sizes = new int[specs.length];
+            int[] starts = new int[specs.length];
+            for (int i = 0; i < specs.length; i++) {
+                String[] parts = specs[i].split(":");
+                sizes[i] = Integer.parseInt(parts[0]);
+                starts[i] = parts.length > 1 ? Integer.parseInt(parts[1]) : startPos;
+                checkDial(sizes[i], starts[i]);
+            }
+            try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
+                solveBatch(sc, out, sizes, starts);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        checkDial(dialSize, startPos);
+        // --index counts its log first and checks inside solveIndexed.
+        if (!mode.equals("--index")) checkTables(mode, dialSize, 0);
+        if (mode.equals("--parallel") || mode.equals("--index")) {
+            try (FastOutput out = new FastOutput()) {
+                if (mode.equals("--parallel")) {
+                    solveParallel(Paths.get(modeArg), out, dialSize, startPos);
+                } else {
+                    solveIndexed(Paths.get(modeArg), out, dialSize, startPos);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            if (mode.equals("--sweep")) {
+                solveSweep(sc, out, dialSize);
+            } else {
+                solve(sc, out, dialSize, startPos);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private static void checkDial(int dialSize, int startPos) {
+        if (dialSize < 1 || startPos < 0 || startPos >= dialSize) {
+            throw new IllegalArgumentException(
+                    "Start position " + startPos + " is not on a dial of size " + dialSize + ".");
+        }
+    }
+
+    // The per-start-table modes keep one long per dial position in every table, and
+    // several tables are alive at once, so a huge dial that the sequential and batch
+    // modes handle fine can be out of reach for them. Fail up front instead of running
+    // out of memory halfway through the input.
+    private static void checkTables(String mode, int dialSize, long instructions) {
+        long tables;
+        switch (mode) {
+            case "--parallel":
+                // Each busy worker holds a summarizer, its finished summary and a combined table.
+                tables = 3 * (ForkJoinPool.commonPool().getParallelism() + 1);
+                break;
+            case "--sweep":
+                tables = 2;
+                break;
+            case "--index":
+                // Level 0 of the segment tree has a table per complete block and every level
+                // above it half as many, so just under 2 per block; plus a block being
+                // summarized and a pair being merged. Instructions added later by "add"
+                // queries grow the tree past this.
+                tables = 2 * (instructions / DialIndex.BLOCK) + 3;
+                break;
+            default:
+                return;
+        }
+        double bytes = (double) dialSize * Long.BYTES * tables;
+        long budget = Runtime.getRuntime().maxMemory() / 2;
+        if (dialSize > MAX_TABLE_DIAL_SIZE || bytes > budget) {
+            throw new IllegalArgumentException("Dial size " + dialSize + " is too large for " + mode
+                    + ": it needs " + tables + " tables of " + dialSize + " longs (" + (long) (bytes / (1 << 20))
+                    + " MB) but only " + (budget >> 20) + " MB can go to them. Use the default mode or --batch.");
+        }
+    }
+
     static class FastOutput implements Closeable {
         private final PrintWriter out = new PrintWriter(System.out);
         public void println(Object o) { out.println(o); }
         @Override public void close() { out.flush(); }
     }
 
+    // Reads rotations straight from a reusable byte buffer: no Strings, no per-line objects.
     static class FastScanner implements Closeable {
-        private final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String nextLine() throws IOException { return br.readLine(); }
-        @Override public void close() throws IOException { br.close(); }
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int ptr = 0, len = 0;
+
+        // Last rotation read by nextRotation()
+        int direction;
+        long amount;
+
+        FastScanner() {
+            this(System.in);
+        }
+
+        FastScanner(InputStream in) {
+            this.in = in;
+        }
+
+        private int readByte() throws IOException {
+            if (ptr >= len) {
+                ptr = 0;
+                len = in.read(buffer);
+                if (len <= 0) return -1;
+            }
+            return buffer[ptr++];
+        }
+
+        // Skips blank lines, reads "L68" into direction/amount. Returns false at EOF.
+        boolean nextRotation() throws IOException {
+            int c;
+            while ((c = readByte()) != -1 && c <= ' ');
+            if (c == -1) return false;
+            direction = c;
+            long val = 0;
+            while ((c = readByte()) >= '0' && c <= '9') {
+                val = val * 10 + (c - '0');
+            }
+            while (c != -1 && c != '\n') c = readByte();
+            amount = val;
+            return true;
+        }
+
+        @Override public void close() throws IOException { in.close(); }
     }
 }
\ No newline at end of file
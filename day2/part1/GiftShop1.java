@@ -12,77 +12,429 @@
  *    - Each range is defined by a start and end value separated by a hyphen.
  * 
  * 2. Processing Ranges:
- *    - We split the input string by ',' to get individual range strings.
- *    - For each range string, we split by '-' to extract the start and end integers.
+ *    - The line can be gigabytes long, so we never build it as a String or split it.
+ *      FastScanner.nextRange() parses the next "start-end" pair straight from its byte
+ *      buffer, so memory stays bounded however long the line is.
  *    - We then iterate through every number from 'start' to 'end' (inclusive).
  * 
  * 3. Identifying Invalid IDs:
  *    - A number is considered "invalid" if it is formed by a sequence of digits repeated twice.
  *    - Examples: 55 (5 repeated), 1212 (12 repeated), 38593859 (3859 repeated).
- *    - Check:
- *      a. Convert the number to a string.
- *      b. If the string length is odd, it cannot be a repeated sequence.
- *      c. If even, compare the first half of the string with the second half.
- *      d. If both halves are identical, the ID is invalid.
+ *    - Check (pure arithmetic, no String per ID):
+ *      a. Count the digits L of the number.
+ *      b. If L is odd, it cannot be a repeated sequence.
+ *      c. If L = 2k, the number repeats its half exactly when it is h * (10^k + 1)
+ *         for some k-digit h, e.g. 1212 = 12 * 101.
+ *      d. So the ID is invalid if it divides evenly by 10^k + 1 and the quotient has k digits.
  * 
  * 4. Result:
  *    - Sum up all the "invalid" IDs found across all ranges and print the total.
+ *
+ * 5. Closed form (default engine):
+ *    - Walking every ID is hopeless for ranges like 1-999999999999, so instead of
+ *      visiting IDs we count them.
+ *    - An invalid ID with 2k digits is h * (10^k + 1), where h is any k-digit half
+ *      (10^(k-1) <= h < 10^k). E.g. 1212 = 12 * 101.
+ *    - For each k, the halves that land inside [start, end] form one contiguous run
+ *      [ceil(start / m), floor(end / m)] clipped to the k-digit halves, m = 10^k + 1.
+ *    - The sum of that run is m * (hLo + hHi) * count / 2, an arithmetic series.
+ *    - So each range costs at most 9 steps (longs have up to 19 digits), whatever its width.
+ *    - The old per-ID loop is still available with --brute as a cross-check.
+ *
+ * 6. Prefix sums with a cache:
+ *    - InvalidIdSums exposes F(n) = sum of invalid IDs <= n, and answers a range as
+ *      F(end) - F(start - 1).
+ *    - F(n) = (precomputed sum of every invalid ID with fewer digits than n)
+ *             + (one arithmetic series for n's own digit length).
+ *    - Computed F values are kept in a bounded LRU cache, so repeated or neighbouring
+ *      range endpoints are answered with a single lookup.
  */
 
 import java.io.*;
+import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class GiftShop1 {
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
-        // Read the single line of input containing all the ID ranges.
-        String line = sc.nextLine();
-        if (line == null || line.isEmpty()) return;
-
-        // Split the input string by commas to process each range independently.
-        String[] ranges = line.split(",");
-        long totalSum = 0;
-
-        // Iterate through each range string.
-        for (String range : ranges) {
-            // Parse the start and end values from the "start-end" format.
-            String[] parts = range.split("-");
-            long start = Long.parseLong(parts[0]);
-            long end = Long.parseLong(parts[1]);
-
-            // Loop through every ID in the current range to check for validity.
-            for (long i = start; i <= end; i++) {
-                // If the ID matches the invalid pattern (repeated sequence), add it to the sum.
-                if (isInvalid(i)) {
-                    totalSum += i;
-                }
+    // POW10[k] = 10^k
+    private static final long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int k = 1; k < POW10.length; k++) POW10[k] = POW10[k - 1] * 10;
+    }
+
+    private static void solve(FastScanner sc, FastOutput out, boolean brute) throws Exception {
+        // The single input line holds all the ID ranges; stop if it is empty.
+        if (!sc.nextRange()) return;
+
+        // WideSum keeps the total exact even when it no longer fits in a long.
+        WideSum totalSum = new WideSum();
+        InvalidIdSums sums = new InvalidIdSums(InvalidIdSums.DEFAULT_CAPACITY);
+
+        // Stream the ranges one "start-end" pair at a time.
+        do {
+            if (brute) {
+                bruteForceSum(sc.start, sc.end, totalSum);
+            } else {
+                sums.addRangeSum(sc.start, sc.end, totalSum);
             }
-        }
+        } while (sc.nextRange());
         out.println(totalSum);
     }
 
+    private static void bruteForceSum(long start, long end, WideSum sum) {
+        // Loop through every ID in the current range to check for validity.
+        for (long i = start; i <= end; i++) {
+            // If the ID matches the invalid pattern (repeated sequence), add it to the sum.
+            if (isInvalid(i)) {
+                sum.add(i);
+            }
+        }
+    }
+
+    // Sum of the invalid IDs with exactly len digits that are <= n.
+    // They are h * (10^k + 1) for the k-digit halves h, k = len / 2: one arithmetic series.
+    private static void addSumOfLength(int len, long n, WideSum into) {
+        if (len % 2 != 0) return;
+        int k = len / 2;
+        long m = POW10[k] + 1;
+        long hLo = POW10[k - 1];
+        long hHi = Math.min(POW10[k] - 1, n / m);
+        if (hLo > hHi) return;
+        into.addProduct(m, seriesSum(hLo, hHi));
+    }
+
+    private static int digitCount(long n) {
+        // floor(log10(n)) estimated from the bit length, then fixed up with one table lookup
+        if (n < 10) return 1;
+        int t = (64 - Long.numberOfLeadingZeros(n)) * 1233 >>> 12;
+        return t + (n >= POW10[t] ? 1 : 0);
+    }
+
+    // F(n) = sum of invalid IDs <= n, with a bounded LRU cache of computed values.
+    // Range sums are F(end) - F(start - 1), kept exact in 128 bits.
+    static final class InvalidIdSums {
+        static final int DEFAULT_CAPACITY = 1 << 16;
+
+        // Sum of all invalid IDs with fewer than len digits, as 128-bit (hi, lo) halves
+        private static final long[] LENGTH_PREFIX_HI = new long[20];
+        private static final long[] LENGTH_PREFIX_LO = new long[20];
+        static {
+            WideSum running = new WideSum();
+            for (int len = 1; len <= 19; len++) {
+                LENGTH_PREFIX_HI[len] = running.high();
+                LENGTH_PREFIX_LO[len] = running.low();
+                long largest = len < POW10.length ? POW10[len] - 1 : Long.MAX_VALUE;
+                addSumOfLength(len, largest, running);
+            }
+        }
+
+        // n -> {hi, lo} of F(n)
+        private final Map<Long, long[]> cache;
+
+        InvalidIdSums(int capacity) {
+            // Access-ordered LinkedHashMap: the eldest entry is the least recently used one.
+            this.cache = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        // F(n) as {hi, lo}
+        long[] prefixSum(long n) {
+            if (n <= 0) return new long[2];
+            long[] cached = cache.get(n);
+            if (cached != null) return cached;
+            int len = digitCount(n);
+            WideSum value = new WideSum();
+            value.add(LENGTH_PREFIX_HI[len], LENGTH_PREFIX_LO[len]);
+            addSumOfLength(len, n, value);
+            long[] result = {value.high(), value.low()};
+            cache.put(n, result);
+            return result;
+        }
+
+        void addRangeSum(long start, long end, WideSum into) {
+            // A reversed range holds no IDs, like the brute-force loop; F(end) - F(start - 1)
+            // would come out negative.
+            if (start > end) return;
+            long[] upper = prefixSum(end);
+            long[] lower = prefixSum(start - 1);
+            into.add(upper[0], upper[1]);
+            into.subtract(lower[0], lower[1]);
+        }
+    }
+
+    // lo + (lo + 1) + ... + hi. Halves have at most 9 digits, so this always fits in a long.
+    private static long seriesSum(long lo, long hi) {
+        long count = hi - lo + 1;
+        long ends = lo + hi;
+        return count % 2 == 0 ? (count / 2) * ends : count * (ends / 2);
+    }
+
     private static boolean isInvalid(long n) {
-        // Convert the number to a string to easily check for the repeated pattern.
-        String s = Long.toString(n);
-        int len = s.length();
-        // Optimization: A string formed by repeating a sequence twice must have an even length.
+        // Count digits arithmetically; no String is built.
+        int len = digitCount(n);
+        // Optimization: A number formed by repeating a sequence twice must have an even length.
         if (len % 2 != 0) return false;
-        
-        // Check if the first half of the string is identical to the second half.
-        int mid = len / 2;
-        for (int i = 0; i < mid; i++) {
-            // Compare character at index i with the corresponding character in the second half.
-            if (s.charAt(i) != s.charAt(mid + i)) {
-                return false;
+
+        // The first half equals the second half exactly when n = h * (10^k + 1) for a k-digit h.
+        int k = len / 2;
+        long m = POW10[k] + 1;
+        return n % m == 0 && n / m >= POW10[k - 1];
+    }
+
+    // ------------------------ parallel brute force ------------------------
+
+    // Usage: java GiftShop1 --parallel-brute < input.txt
+    //
+    // Same per-ID check as --brute, but every range is split into sub-ranges on a
+    // work-stealing ForkJoinPool. Each leaf sums into its own WideSum, which is then
+    // merged into the exact shared total. While it runs,
+    // a progress line is written to stderr every few seconds in key=value form so it
+    // can be scraped, e.g.
+    //   progress scanned=123456789 ids_per_sec=4567890 ranges_completed=3 ranges_total=10
+    //
+    // Ranges are handed to the pool as they are parsed, but at most MAX_RANGES_IN_FLIGHT
+    // at a time and without keeping their task handles, so memory stays bounded however
+    // many ranges the input line holds.
+
+    private static final long BRUTE_SPLIT_THRESHOLD = 1 << 16;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final int MAX_RANGES_IN_FLIGHT = 4 * ForkJoinPool.getCommonPoolParallelism();
+
+    private static void solveParallelBrute(FastScanner sc, FastOutput out) throws Exception {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        WideSum total = new WideSum();
+        BruteForceProgress progress = new BruteForceProgress();
+        // A permit per range that is queued or running; RangeTask gives it back when done.
+        Semaphore inFlight = new Semaphore(MAX_RANGES_IN_FLIGHT);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "brute-force-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(progress.snapshot()),
+                PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        try {
+            while (failure.get() == null && sc.nextRange()) {
+                progress.rangesTotal.increment();
+                inFlight.acquire();
+                pool.execute(new RangeTask(sc.start, sc.end, total, progress, inFlight, failure));
+            }
+            // Every permit back means every submitted range has finished.
+            inFlight.acquire(MAX_RANGES_IN_FLIGHT);
+        } finally {
+            reporter.shutdownNow();
+        }
+        Throwable error = failure.get();
+        if (error instanceof Exception) throw (Exception) error;
+        if (error instanceof Error) throw (Error) error;
+        System.err.println(progress.snapshot());
+        out.println(total);
+    }
+
+    // Live counters for a parallel brute-force run. All fields can be read at any time.
+    static final class BruteForceProgress {
+        final LongAdder scanned = new LongAdder();
+        final LongAdder rangesCompleted = new LongAdder();
+        final LongAdder rangesTotal = new LongAdder();
+        private final long startNanos = System.nanoTime();
+
+        long idsPerSecond() {
+            long elapsed = System.nanoTime() - startNanos;
+            return elapsed <= 0 ? 0 : (long) (scanned.sum() * 1e9 / elapsed);
+        }
+
+        String snapshot() {
+            return "progress scanned=" + scanned.sum()
+                    + " ids_per_sec=" + idsPerSecond()
+                    + " ranges_completed=" + rangesCompleted.sum()
+                    + " ranges_total=" + rangesTotal.sum();
+        }
+    }
+
+    // Root task for one input range: splits it, then marks the range as completed.
+    // Nobody joins it, so it reports into the shared total, counters and failure slot,
+    // and releases its in-flight permit whatever happens.
+    static final class RangeTask extends RecursiveAction {
+        private final long start, end;
+        private final WideSum total;
+        private final BruteForceProgress progress;
+        private final Semaphore inFlight;
+        private final AtomicReference<Throwable> failure;
+
+        RangeTask(long start, long end, WideSum total, BruteForceProgress progress,
+                  Semaphore inFlight, AtomicReference<Throwable> failure) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+            this.progress = progress;
+            this.inFlight = inFlight;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                new SubRangeTask(start, end, total, progress).invoke();
+                progress.rangesCompleted.increment();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    static final class SubRangeTask extends RecursiveAction {
+        private final long start, end;
+        private final WideSum total;
+        private final BruteForceProgress progress;
+
+        SubRangeTask(long start, long end, WideSum total, BruteForceProgress progress) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < BRUTE_SPLIT_THRESHOLD) {
+                WideSum leaf = new WideSum();
+                bruteForceSum(start, end, leaf);
+                synchronized (total) {
+                    total.add(leaf);
+                }
+                if (end >= start) progress.scanned.add(end - start + 1);
+                return;
+            }
+            long mid = start + (end - start) / 2;
+            invokeAll(new SubRangeTask(start, mid, total, progress),
+                    new SubRangeTask(mid + 1, end, total, progress));
+        }
+    }
+
+    // ------------------------ WideSum ------------------------
+
+    // Exact running total without BigInteger. It stays on a plain long until an add
+    // overflows (detected with the same sign test Math.addExact uses), then carries on
+    // as a two's-complement 128-bit (hi, lo) pair. Exact up to +/- 2^127.
+    static final class WideSum {
+        private long lo;
+        private long hi;
+        private boolean wide;
+
+        WideSum() {
+        }
+
+        WideSum(long value) {
+            lo = value;
+        }
+
+        void add(long x) {
+            if (!wide) {
+                long r = lo + x;
+                if (((lo ^ r) & (x ^ r)) >= 0) {
+                    lo = r;
+                    return;
+                }
+                promote();
+            }
+            addWide(x >> 63, x);
+        }
+
+        // Adds the 128-bit value (xHi, xLo).
+        void add(long xHi, long xLo) {
+            if (xHi == xLo >> 63) {
+                add(xLo);
+                return;
+            }
+            promote();
+            addWide(xHi, xLo);
+        }
+
+        void add(WideSum other) {
+            add(other.high(), other.low());
+        }
+
+        void subtract(long xHi, long xLo) {
+            add(~xHi + (xLo == 0 ? 1 : 0), -xLo);
+        }
+
+        // Adds a * b exactly; Math.multiplyHigh gives the upper 64 bits of the product.
+        void addProduct(long a, long b) {
+            add(Math.multiplyHigh(a, b), a * b);
+        }
+
+        // Multiplies a non-negative total by a non-negative factor.
+        // Throws ArithmeticException if the product needs more than 127 bits.
+        void multiply(long factor) {
+            if (factor < 0 || high() < 0) {
+                throw new IllegalArgumentException("multiply() needs non-negative operands.");
             }
+            if (!wide) {
+                long pLo = lo * factor;
+                if (Math.multiplyHigh(lo, factor) == 0 && pLo >= 0) {
+                    lo = pLo;
+                    return;
+                }
+                promote();
+            }
+            // (hi * 2^64 + lo) * factor, with lo treated as unsigned
+            long carry = Math.multiplyHigh(lo, factor) + ((lo >> 63) & factor);
+            long newHi = Math.addExact(Math.multiplyExact(hi, factor), carry);
+            if (newHi < 0) throw new ArithmeticException("Total exceeds 128 bits.");
+            hi = newHi;
+            lo = lo * factor;
+        }
+
+        long high() {
+            return wide ? hi : lo >> 63;
+        }
+
+        long low() {
+            return lo;
+        }
+
+        private void promote() {
+            if (!wide) {
+                hi = lo >> 63;
+                wide = true;
+            }
+        }
+
+        private void addWide(long xHi, long xLo) {
+            long r = lo + xLo;
+            long carry = Long.compareUnsigned(r, lo) < 0 ? 1 : 0;
+            lo = r;
+            hi += xHi + carry;
+        }
+
+        @Override
+        public String toString() {
+            if (!wide || hi == lo >> 63) return Long.toString(lo);
+            return BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo))).toString();
         }
-        // If the loop completes, the pattern holds true.
-        return true;
     }
 
     public static void main(String[] args) {
+        // --brute walks every ID instead of using the closed form,
+        // --parallel-brute does the same on all cores
+        String mode = args.length > 0 ? args[0] : "";
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            if (mode.equals("--parallel-brute")) {
+                solveParallelBrute(sc, out);
+            } else {
+                solve(sc, out, mode.equals("--brute"));
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -94,9 +446,54 @@ public class GiftShop1 {
         @Override public void close() { out.flush(); }
     }
 
+    // Streams "start-end" pairs of the first input line out of a fixed byte buffer.
     static class FastScanner implements Closeable {
-        private final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String nextLine() throws IOException { return br.readLine(); }
-        @Override public void close() throws IOException { br.close(); }
+        private final InputStream in = System.in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int ptr = 0, len = 0;
+        private boolean lineDone = false;
+
+        // Last range read by nextRange()
+        long start, end;
+
+        private int readByte() throws IOException {
+            if (ptr >= len) {
+                ptr = 0;
+                len = in.read(buffer);
+                if (len <= 0) return -1;
+            }
+            return buffer[ptr++];
+        }
+
+        // Reads the next range into start/end. Returns false once the line is used up.
+        boolean nextRange() throws IOException {
+            if (lineDone) return false;
+            int c = readByte();
+            while (c == ',' || c == ' ' || c == '\r') c = readByte();
+            if (c < '0' || c > '9') {
+                lineDone = true;
+                return false;
+            }
+
+            long a = 0;
+            while (c >= '0' && c <= '9') {
+                a = a * 10 + (c - '0');
+                c = readByte();
+            }
+            if (c != '-') throw new NumberFormatException("Expected '-' after " + a + ".");
+            c = readByte();
+            long b = 0;
+            while (c >= '0' && c <= '9') {
+                b = b * 10 + (c - '0');
+                c = readByte();
+            }
+            if (c == '\n' || c == -1) lineDone = true;
+
+            start = a;
+            end = b;
+            return true;
+        }
+
+        @Override public void close() throws IOException { in.close(); }
     }
 }
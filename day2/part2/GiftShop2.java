@@ -5,7 +5,10 @@
  */
 
 import java.io.*;
+import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class GiftShop2 {
     /*
@@ -28,52 +31,469 @@ public class GiftShop2 {
      * If 'len' is divisible by 'i', I take the prefix of length 'i' as my candidate pattern.
      * Then I check if the rest of the string is just repetitions of this candidate pattern.
      * If I find such a pattern, I mark the ID as invalid and add it to my total sum.
+     *
+     * Analytical engine (default):
+     *
+     * Checking every ID doesn't scale to ranges that span trillions, so I count periodic numbers
+     * instead of visiting them. An L-digit number with period p (p divides L) is h * M(L, p), where
+     * h is any p-digit block and M(L, p) = (10^L - 1) / (10^p - 1) = 1 0..0 1 0..0 1 ... repeats the
+     * block, e.g. 121212 = 12 * 10101. Inside [start, end] the valid h form one contiguous run, so
+     * each period contributes an arithmetic series.
+     *
+     * A number like 111111 has periods 1, 2 and 3 and must be counted once. Numbers with periods p
+     * and q (both dividing L) also have period gcd(p, q), so Mobius inclusion-exclusion over the
+     * divisors works out: the sum of all periodic L-digit numbers is
+     * sum over proper divisors d of L of -mu(L / d) * (sum of h * M(L, d)).
+     * The whole thing is precomputed as a short list of (d, M, coefficient) terms per length.
+     * The per-ID loop is still available with --brute.
+     *
+     * The per-ID check itself (used by --brute and --parallel-brute) is pure arithmetic too: an
+     * L-digit id has period p exactly when id % M(L, p) == 0 and the quotient has p digits. If a
+     * number has period p it also has every period that p divides, so it is enough to try the
+     * largest proper periods L / q for the primes q dividing L, using a precomputed table.
+     *
+     * For lots of overlapping range queries I went one step further: InvalidIdSums gives
+     * F(n) = sum of periodic IDs <= n, so a range is F(end) - F(start - 1). F(n) is the precomputed
+     * total of every shorter length plus the terms of n's own length, and computed values sit in a
+     * bounded LRU cache so repeated endpoints are a single lookup.
      */
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
-        long totalSum = 0;
-        while (true) {
-            String line = sc.nextLine();
-            if (line == null || line.isEmpty()) break;
-
-            String[] ranges = line.split(",");
-            for (String range : ranges) {
-                String[] parts = range.split("-")Owo;
-                long start = Long.parseLong(parts[0]);
-                long end = Long.parseLong(parts[1]);
-
-                for (long id = start; id <= end; id++) {
-                    if (isInvalid(id)) {
-                        totalSum += id;
-                    }
-                }
+    // POW10[k] = 10^k
+    private static final long[] POW10 = new long[19];
+
+    // One entry per (length L, proper divisor d of L) with mu(L / d) != 0, ordered by L.
+    // The terms for length L are TERM_FIRST[L] until TERM_FIRST[L + 1].
+    private static final int[] TERM_FIRST = new int[21];
+    private static final int[] TERM_PERIOD;
+    private static final long[] TERM_MULTIPLIER;
+    private static final int[] TERM_COEFFICIENT;
+
+    // For length L: the maximal proper periods L / q (q prime) and their repunit multipliers M(L, p).
+    private static final int[][] CHECK_PERIOD = new int[20][];
+    private static final long[][] CHECK_MULTIPLIER = new long[20][];
+
+    static {
+        POW10[0] = 1;
+        for (int k = 1; k < POW10.length; k++) POW10[k] = POW10[k - 1] * 10;
+
+        List<long[]> terms = new ArrayList<>();
+        // Longs have at most 19 digits.
+        for (int len = 1; len <= 19; len++) {
+            TERM_FIRST[len] = terms.size();
+            for (int d = 1; d < len; d++) {
+                if (len % d != 0 || mobius(len / d) == 0) continue;
+                long multiplier = 0;
+                for (int i = 0; i < len; i += d) multiplier += POW10[i];
+                terms.add(new long[]{d, multiplier, -mobius(len / d)});
+            }
+        }
+        TERM_FIRST[20] = terms.size();
+
+        for (int len = 1; len <= 19; len++) {
+            List<Integer> periods = new ArrayList<>();
+            for (int q = 2; q <= len; q++) {
+                if (len % q == 0 && isPrime(q)) periods.add(len / q);
+            }
+            CHECK_PERIOD[len] = new int[periods.size()];
+            CHECK_MULTIPLIER[len] = new long[periods.size()];
+            for (int i = 0; i < periods.size(); i++) {
+                int p = periods.get(i);
+                long multiplier = 0;
+                for (int j = 0; j < len; j += p) multiplier += POW10[j];
+                CHECK_PERIOD[len][i] = p;
+                CHECK_MULTIPLIER[len][i] = multiplier;
+            }
+        }
+        TERM_PERIOD = new int[terms.size()];
+        TERM_MULTIPLIER = new long[terms.size()];
+        TERM_COEFFICIENT = new int[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            TERM_PERIOD[i] = (int) terms.get(i)[0];
+            TERM_MULTIPLIER[i] = terms.get(i)[1];
+            TERM_COEFFICIENT[i] = (int) terms.get(i)[2];
+        }
+    }
+
+    private static void solve(FastScanner sc, FastOutput out, boolean brute) throws Exception {
+        // WideSum keeps the total exact even when it no longer fits in a long.
+        WideSum totalSum = new WideSum();
+        InvalidIdSums sums = new InvalidIdSums(InvalidIdSums.DEFAULT_CAPACITY);
+        // The ranges are streamed straight out of the input bytes, so even a
+        // gigabyte-long line never has to sit on the heap as a String.
+        while (sc.nextRange()) {
+            if (brute) {
+                bruteForceSum(sc.start, sc.end, totalSum);
+            } else {
+                sums.addRangeSum(sc.start, sc.end, totalSum);
             }
         }
         out.println(totalSum);
     }
 
+    private static void bruteForceSum(long start, long end, WideSum sum) {
+        for (long id = start; id <= end; id++) {
+            if (isInvalid(id)) {
+                sum.add(id);
+            }
+        }
+    }
+
+    // Sum of the periodic IDs with exactly len digits that are <= n.
+    private static void addSumOfLength(int len, long n, WideSum into) {
+        for (int t = TERM_FIRST[len]; t < TERM_FIRST[len + 1]; t++) {
+            int d = TERM_PERIOD[t];
+            long m = TERM_MULTIPLIER[t];
+            // h runs over the d-digit blocks with h * m <= n
+            long hLo = POW10[d - 1];
+            long hHi = Math.min(POW10[d] - 1, n / m);
+            if (hLo > hHi) continue;
+            into.addProduct(TERM_COEFFICIENT[t] * m, seriesSum(hLo, hHi));
+        }
+    }
+
+    private static int digitCount(long n) {
+        // floor(log10(n)) estimated from the bit length, then fixed up with one table lookup
+        if (n < 10) return 1;
+        int t = (64 - Long.numberOfLeadingZeros(n)) * 1233 >>> 12;
+        return t + (n >= POW10[t] ? 1 : 0);
+    }
+
+    // F(n) = sum of periodic IDs <= n, with a bounded LRU cache of computed values.
+    static final class InvalidIdSums {
+        static final int DEFAULT_CAPACITY = 1 << 16;
+
+        // Sum of all periodic IDs with fewer than len digits, as 128-bit (hi, lo) halves
+        private static final long[] LENGTH_PREFIX_HI = new long[20];
+        private static final long[] LENGTH_PREFIX_LO = new long[20];
+        static {
+            WideSum running = new WideSum();
+            for (int len = 1; len <= 19; len++) {
+                LENGTH_PREFIX_HI[len] = running.high();
+                LENGTH_PREFIX_LO[len] = running.low();
+                long largest = len < POW10.length ? POW10[len] - 1 : Long.MAX_VALUE;
+                addSumOfLength(len, largest, running);
+            }
+        }
+
+        // n -> {hi, lo} of F(n)
+        private final Map<Long, long[]> cache;
+
+        InvalidIdSums(int capacity) {
+            // Access order makes the eldest entry the least recently used one.
+            this.cache = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        // F(n) as {hi, lo}
+        long[] prefixSum(long n) {
+            if (n <= 0) return new long[2];
+            long[] cached = cache.get(n);
+            if (cached != null) return cached;
+            int len = digitCount(n);
+            WideSum value = new WideSum();
+            value.add(LENGTH_PREFIX_HI[len], LENGTH_PREFIX_LO[len]);
+            addSumOfLength(len, n, value);
+            long[] result = {value.high(), value.low()};
+            cache.put(n, result);
+            return result;
+        }
+
+        void addRangeSum(long start, long end, WideSum into) {
+            // A reversed range holds no IDs, like the brute-force loop; F(end) - F(start - 1)
+            // would come out negative.
+            if (start > end) return;
+            long[] upper = prefixSum(end);
+            long[] lower = prefixSum(start - 1);
+            into.add(upper[0], upper[1]);
+            into.subtract(lower[0], lower[1]);
+        }
+    }
+
+    // lo + (lo + 1) + ... + hi. Blocks have at most 9 digits, so this always fits in a long.
+    private static long seriesSum(long lo, long hi) {
+        long count = hi - lo + 1;
+        long ends = lo + hi;
+        return count % 2 == 0 ? (count / 2) * ends : count * (ends / 2);
+    }
+
+    private static boolean isPrime(int n) {
+        for (int p = 2; p * p <= n; p++) {
+            if (n % p == 0) return false;
+        }
+        return n > 1;
+    }
+
+    private static int mobius(int n) {
+        int result = 1;
+        for (int p = 2; p * p <= n; p++) {
+            if (n % p != 0) continue;
+            n /= p;
+            if (n % p == 0) return 0;
+            result = -result;
+        }
+        return n > 1 ? -result : result;
+    }
+
     private static boolean isInvalid(long id) {
-        String s = Long.toString(id);
-        int len = s.length();
-        for (int i = 1; i <= len / 2; i++) {
-            if (len % i == 0) {
-                String sub = s.substring(0, i);
-                boolean match = true;
-                for (int j = i; j < len; j += i) {
-                    if (!s.startsWith(sub, j)) {
-                        match = false;
-                        break;
-                    }
+        int len = digitCount(id);
+        int[] periods = CHECK_PERIOD[len];
+        long[] multipliers = CHECK_MULTIPLIER[len];
+        for (int i = 0; i < periods.length; i++) {
+            long m = multipliers[i];
+            if (id % m == 0 && id / m >= POW10[periods[i] - 1]) return true;
+        }
+        return false;
+    }
+
+    // ------------------------ parallel brute force ------------------------
+
+    // Usage: java GiftShop2 --parallel-brute < input.txt
+    //
+    // Same per-ID check as --brute, but every range is split into sub-ranges on a
+    // work-stealing ForkJoinPool. Each leaf sums into its own WideSum, which is then
+    // merged into the exact shared total. While it runs,
+    // a progress line is written to stderr every few seconds in key=value form so it
+    // can be scraped, e.g.
+    //   progress scanned=123456789 ids_per_sec=4567890 ranges_completed=3 ranges_total=10
+    //
+    // Ranges are handed to the pool as they are parsed, but at most MAX_RANGES_IN_FLIGHT
+    // at a time and without keeping their task handles, so memory stays bounded however
+    // many ranges the input line holds.
+
+    private static final long BRUTE_SPLIT_THRESHOLD = 1 << 16;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final int MAX_RANGES_IN_FLIGHT = 4 * ForkJoinPool.getCommonPoolParallelism();
+
+    private static void solveParallelBrute(FastScanner sc, FastOutput out) throws Exception {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        WideSum total = new WideSum();
+        BruteForceProgress progress = new BruteForceProgress();
+        // A permit per range that is queued or running; RangeTask gives it back when done.
+        Semaphore inFlight = new Semaphore(MAX_RANGES_IN_FLIGHT);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "brute-force-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(progress.snapshot()),
+                PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        try {
+            while (failure.get() == null && sc.nextRange()) {
+                progress.rangesTotal.increment();
+                inFlight.acquire();
+                pool.execute(new RangeTask(sc.start, sc.end, total, progress, inFlight, failure));
+            }
+            // Every permit back means every submitted range has finished.
+            inFlight.acquire(MAX_RANGES_IN_FLIGHT);
+        } finally {
+            reporter.shutdownNow();
+        }
+        Throwable error = failure.get();
+        if (error instanceof Exception) throw (Exception) error;
+        if (error instanceof Error) throw (Error) error;
+        System.err.println(progress.snapshot());
+        out.println(total);
+    }
+
+    // Live counters for a parallel brute-force run. All fields can be read at any time.
+    static final class BruteForceProgress {
+        final LongAdder scanned = new LongAdder();
+        final LongAdder rangesCompleted = new LongAdder();
+        final LongAdder rangesTotal = new LongAdder();
+        private final long startNanos = System.nanoTime();
+
+        long idsPerSecond() {
+            long elapsed = System.nanoTime() - startNanos;
+            return elapsed <= 0 ? 0 : (long) (scanned.sum() * 1e9 / elapsed);
+        }
+
+        String snapshot() {
+            return "progress scanned=" + scanned.sum()
+                    + " ids_per_sec=" + idsPerSecond()
+                    + " ranges_completed=" + rangesCompleted.sum()
+                    + " ranges_total=" + rangesTotal.sum();
+        }
+    }
+
+    // Root task for one input range: splits it, then marks the range as completed.
+    // Nobody joins it, so it reports into the shared total, counters and failure slot,
+    // and releases its in-flight permit whatever happens.
+    static final class RangeTask extends RecursiveAction {
+        private final long start, end;
+        private final WideSum total;
+        private final BruteForceProgress progress;
+        private final Semaphore inFlight;
+        private final AtomicReference<Throwable> failure;
+
+        RangeTask(long start, long end, WideSum total, BruteForceProgress progress,
+                  Semaphore inFlight, AtomicReference<Throwable> failure) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+            this.progress = progress;
+            this.inFlight = inFlight;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                new SubRangeTask(start, end, total, progress).invoke();
+                progress.rangesCompleted.increment();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    static final class SubRangeTask extends RecursiveAction {
+        private final long start, end;
+        private final WideSum total;
+        private final BruteForceProgress progress;
+
+        SubRangeTask(long start, long end, WideSum total, BruteForceProgress progress) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < BRUTE_SPLIT_THRESHOLD) {
+                WideSum leaf = new WideSum();
+                bruteForceSum(start, end, leaf);
+                synchronized (total) {
+                    total.add(leaf);
                 }
-                if (match) return true;
+                if (end >= start) progress.scanned.add(end - start + 1);
+                return;
             }
+            long mid = start + (end - start) / 2;
+            invokeAll(new SubRangeTask(start, mid, total, progress),
+                    new SubRangeTask(mid + 1, end, total, progress));
+        }
+    }
+
+    // ------------------------ WideSum ------------------------
+
+    // Exact running total without BigInteger. It stays on a plain long until an add
+    // overflows (detected with the same sign test Math.addExact uses), then carries on
+    // as a two's-complement 128-bit (hi, lo) pair. Exact up to +/- 2^127.
+    static final class WideSum {
+        private long lo;
+        private long hi;
+        private boolean wide;
+
+        WideSum() {
+        }
+
+        WideSum(long value) {
+            lo = value;
+        }
+
+        void add(long x) {
+            if (!wide) {
+                long r = lo + x;
+                if (((lo ^ r) & (x ^ r)) >= 0) {
+                    lo = r;
+                    return;
+                }
+                promote();
+            }
+            addWide(x >> 63, x);
+        }
+
+        // Adds the 128-bit value (xHi, xLo).
+        void add(long xHi, long xLo) {
+            if (xHi == xLo >> 63) {
+                add(xLo);
+                return;
+            }
+            promote();
+            addWide(xHi, xLo);
+        }
+
+        void add(WideSum other) {
+            add(other.high(), other.low());
+        }
+
+        void subtract(long xHi, long xLo) {
+            add(~xHi + (xLo == 0 ? 1 : 0), -xLo);
+        }
+
+        // Adds a * b exactly; Math.multiplyHigh gives the upper 64 bits of the product.
+        void addProduct(long a, long b) {
+            add(Math.multiplyHigh(a, b), a * b);
+        }
+
+        // Multiplies a non-negative total by a non-negative factor.
+        // Throws ArithmeticException if the product needs more than 127 bits.
+        void multiply(long factor) {
+            if (factor < 0 || high() < 0) {
+                throw new IllegalArgumentException("multiply() needs non-negative operands.");
+            }
+            if (!wide) {
+                long pLo = lo * factor;
+                if (Math.multiplyHigh(lo, factor) == 0 && pLo >= 0) {
+                    lo = pLo;
+                    return;
+                }
+                promote();
+            }
+            // (hi * 2^64 + lo) * factor, with lo treated as unsigned
+            long carry = Math.multiplyHigh(lo, factor) + ((lo >> 63) & factor);
+            long newHi = Math.addExact(Math.multiplyExact(hi, factor), carry);
+            if (newHi < 0) throw new ArithmeticException("Total exceeds 128 bits.");
+            hi = newHi;
+            lo = lo * factor;
+        }
+
+        long high() {
+            return wide ? hi : lo >> 63;
+        }
+
+        long low() {
+            return lo;
+        }
+
+        private void promote() {
+            if (!wide) {
+                hi = lo >> 63;
+                wide = true;
+            }
+        }
+
+        private void addWide(long xHi, long xLo) {
+            long r = lo + xLo;
+            long carry = Long.compareUnsigned(r, lo) < 0 ? 1 : 0;
+            lo = r;
+            hi += xHi + carry;
+        }
+
+        @Override
+        public String toString() {
+            if (!wide || hi == lo >> 63) return Long.toString(lo);
+            return BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo))).toString();
         }
-        return false;
     }
 
     public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "";
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            if (mode.equals("--parallel-brute")) {
+                solveParallelBrute(sc, out);
+            } else {
+                solve(sc, out, mode.equals("--brute"));
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -85,9 +505,68 @@ public class GiftShop2 {
         @Override public void close() { out.flush(); }
     }
 
+    // Streams comma-separated "start-end" pairs out of a fixed byte buffer, line after
+    // line, until EOF or a blank line.
     static class FastScanner implements Closeable {
-        private final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String nextLine() throws IOException { return br.readLine(); }
-        @Override public void close() throws IOException { br.close(); }
+        private final InputStream in = System.in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int ptr = 0, len = 0;
+        private boolean atLineStart = true;
+        private boolean done = false;
+
+        // Last range read by nextRange()
+        long start, end;
+
+        private int readByte() throws IOException {
+            if (ptr >= len) {
+                ptr = 0;
+                len = in.read(buffer);
+                if (len <= 0) return -1;
+            }
+            return buffer[ptr++];
+        }
+
+        boolean nextRange() throws IOException {
+            if (done) return false;
+            int c = readByte();
+            while (true) {
+                if (c == ',' || c == ' ' || c == '\r') {
+                    c = readByte();
+                } else if (c == '\n') {
+                    if (atLineStart) break;
+                    atLineStart = true;
+                    c = readByte();
+                } else {
+                    break;
+                }
+            }
+            if (c < '0' || c > '9') {
+                done = true;
+                return false;
+            }
+            atLineStart = false;
+
+            long a = 0;
+            while (c >= '0' && c <= '9') {
+                a = a * 10 + (c - '0');
+                c = readByte();
+            }
+            if (c != '-') throw new NumberFormatException("Expected '-' after " + a + ".");
+            c = readByte();
+            long b = 0;
+            while (c >= '0' && c <= '9') {
+                b = b * 10 + (c - '0');
+                c = readByte();
+            }
+            if (c == -1) done = true;
+            // Leave a line break to be seen by the next call
+            if (c == '\n') ptr--;
+
+            start = a;
+            end = b;
+            return true;
+        }
+
+        @Override public void close() throws IOException { in.close(); }
     }
 }
@@ -8,43 +8,134 @@
  * I started by sketching the logic in my mind: for a string like "987654321111111", the best is 98 from the first two. So, I used a suffix maximum array to track the highest digit from each position onward, then iterated through each possible left digit, computed the two-digit value with the suffix max, and kept the global best per line.
  *
  * In code, I implemented this in the solve method of Lobby.java, using a long for the total sum to handle large inputs. I removed the comments as requested and kept it clean. After compiling and running with "java Lobby < input.txt", it gave the correct total joltage. Felt good to optimize it to O(n) per line with the suffix array approach!
+ *
+ * Later this became the hottest loop of the day-3 batch, so the suffix array had to go. Pairing each right digit with the best digit to its LEFT is the same maximum, and that only needs a running prefix max: one pass, straight over the input bytes, with no String, no array per line. Once a bank reaches 99 nothing can beat it, so the rest of that line is skipped.
  */
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class Lobby {
 
     private static void solve(FastScanner sc, FastOutput out) throws Exception {
         long total = 0L;
-        while (true) {
-            String line = sc.nextLine();
-            if (line == null || line.isEmpty()) break;
-
-            int n = line.length();
-            if (n < 2) continue;
-
-            int[] suffixMax = new int[n + 1];
-            suffixMax[n] = -1;
-            for (int i = n - 1; i >= 0; i--) {
-                int d = line.charAt(i) - '0';
-                suffixMax[i] = Math.max(suffixMax[i + 1], d);
+        int c = sc.readByte();
+        // An empty line (or EOF) ends the banks
+        while (c != -1 && c != '\n' && c != '\r') {
+            int prefixMax = -1;
+            int best = 0;
+            while (c != -1 && c != '\n') {
+                if (c >= '0' && c <= '9') {
+                    int d = c - '0';
+                    if (prefixMax >= 0 && prefixMax * 10 + d > best) best = prefixMax * 10 + d;
+                    if (d > prefixMax) prefixMax = d;
+                    if (best == 99) {
+                        while (c != -1 && c != '\n') c = sc.readByte();
+                        break;
+                    }
+                }
+                c = sc.readByte();
             }
+            total += best;
+            c = sc.readByte();
+        }
+        out.println(total);
+    }
+
+    // ------------------------ parallel mode ------------------------
+
+    // Usage: java Lobby --parallel input.txt
+    //
+    // Banks are independent, so the file is memory-mapped in slices cut at newline
+    // boundaries, each slice runs the same prefix-max scan as solve() on a ForkJoinPool,
+    // and the per-slice totals are added up. Blank lines are skipped rather than
+    // ending the input, since a slice cannot know whether an earlier one hit a blank line.
 
+    // Bytes per leaf slice; each one is mapped separately, so files over 2 GB work.
+    private static final long PARALLEL_CHUNK = 1 << 24;
+
+    private static void solveParallel(Path file, FastOutput out) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            out.println(ForkJoinPool.commonPool().invoke(new ChunkTask(channel, 0, channel.size())));
+        }
+    }
+
+    static long sumBanks(ByteBuffer buf) {
+        long total = 0L;
+        int i = buf.position();
+        int limit = buf.limit();
+        while (i < limit) {
+            int prefixMax = -1;
             int best = 0;
-            for (int i = 0; i < n - 1; i++) {
-                int a = line.charAt(i) - '0';
-                int b = suffixMax[i + 1];
-                int val = a * 10 + b;
-                if (val > best) best = val;
+            for (; i < limit; i++) {
+                int c = buf.get(i);
+                if (c == '\n') break;
+                if (c < '0' || c > '9' || best == 99) continue;
+                int d = c - '0';
+                if (prefixMax >= 0 && prefixMax * 10 + d > best) best = prefixMax * 10 + d;
+                if (d > prefixMax) prefixMax = d;
             }
-
             total += best;
+            i++;
+        }
+        return total;
+    }
+
+    static final class ChunkTask extends RecursiveTask<Long> {
+        private final FileChannel channel;
+        private final long from, to;
+
+        ChunkTask(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                long mid = to - from <= PARALLEL_CHUNK ? to : nextLineStart(from + (to - from) / 2);
+                if (mid >= to) {
+                    return sumBanks(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+                }
+                ChunkTask left = new ChunkTask(channel, from, mid);
+                left.fork();
+                Long right = new ChunkTask(channel, mid, to).compute();
+                return left.join() + right;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Offset just past the first newline at or after pos, so no bank is cut in two.
+        private long nextLineStart(long pos) throws IOException {
+            ByteBuffer probe = ByteBuffer.allocate(256);
+            while (pos < to) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                if (n <= 0) break;
+                for (int i = 0; i < n && pos + i < to; i++) {
+                    if (probe.get(i) == '\n') return pos + i + 1;
+                }
+                pos += n;
+            }
+            return to;
         }
-        out.println(total);
     }
 
     public static void main(String[] args) {
+        if (args.length >= 2 && args[0].equals("--parallel")) {
+            try (FastOutput out = new FastOutput()) {
+                solveParallel(Paths.get(args[1]), out);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
             solve(sc, out);
         } catch (Exception e) {
@@ -59,8 +150,19 @@ public class Lobby {
     }
 
     static class FastScanner implements Closeable {
-        private final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String nextLine() throws IOException { return br.readLine(); }
-        @Override public void close() throws IOException { br.close(); }
+        private final InputStream in = System.in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int ptr = 0, len = 0;
+
+        int readByte() throws IOException {
+            if (ptr >= len) {
+                ptr = 0;
+                len = in.read(buffer);
+                if (len <= 0) return -1;
+            }
+            return buffer[ptr++];
+        }
+
+        @Override public void close() throws IOException { in.close(); }
     }
 }
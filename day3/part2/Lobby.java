@@ -21,26 +21,49 @@
  * - Correctness: this greedy approach produces the lexicographically (and
  *   thus numerically) largest subsequence of the requested length.
  *
+ * - The stack never needs more than k entries: once it is full and the next
+ *   digit cannot pop anything, that digit would only be removed later anyway
+ *   (popped or truncated), so we drop it right away and charge it to the
+ *   removal budget. That keeps the state O(k) no matter how long the bank is.
+ *
  * Implementation details:
- * - We use a fixed integer PICK=12 for the number of digits to select.
- * - Each line is processed in O(n) time and O(n) extra space for the stack.
- * - The digits selected form numbers larger than fits in long, so we use
- *   BigInteger to accumulate the total safely.
+ * - PICK defaults to 12 and can be changed with --pick N.
+ * - Each line is processed in O(n) time; the stack is one char[PICK] reused across lines.
+ * - --stream FILE never holds a bank in memory: a lookahead reader measures the
+ *   bank length (needed for the removal budget) just ahead of a second reader that
+ *   feeds the digits through the O(k) stack. Memory per bank depends only on k.
+ * - --parallel FILE memory-maps the input, cuts it into newline-aligned slices and
+ *   runs the capped stack on every slice of a ForkJoinPool, then adds up the totals.
+ * - --report K prints the total for every k = 1..K (K <= 18) in one pass per bank,
+ *   using the DP best[j] = max(best[j], best[j - 1] * 10 + d) over a long[K + 1].
+ * - With PICK <= 18 the selected digits are folded straight into a long (no String,
+ *   no BigInteger per bank) and the running total is a WideSum, which stays on a
+ *   long until it overflows and only then switches to 128-bit arithmetic.
+ * - With PICK > 18 a bank no longer fits in a long, so those runs take the wide
+ *   path: the value is built 18 digits at a time into a BigInteger.
  *
  * Example:
  * - For bank 234234234234278 and k = 12, the algorithm selects 434234234278.
  */
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.math.*;
 
 public class Lobby {
 
-    private static final int PICK = 12;
+    private static final int DEFAULT_PICK = 12;
+
+    // Largest PICK whose values always fit in a long (10^18 - 1 < 2^63).
+    private static final int MAX_LONG_PICK = 18;
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
-        BigInteger total = BigInteger.ZERO;
+    private static void solve(FastScanner sc, FastOutput out, int pick) throws Exception {
+        JoltageTotal total = new JoltageTotal(pick);
+        char[] stack = new char[pick];
         while (true) {
             String line = sc.nextLine();
             if (line == null || line.isEmpty()) break;
@@ -48,14 +71,62 @@ public class Lobby {
             line = line.trim();
             if (line.isEmpty()) break;
 
-            String maxJoltage = maxSubsequenceOfLength(line, PICK);
-            total = total.add(new BigInteger(maxJoltage));
+            maxSubsequenceOfLength(line, pick, stack);
+            total.add(stack);
         }
 
         out.println(total);
     }
 
-    private static String maxSubsequenceOfLength(String digits, int keep) {
+    // Sum of the selected banks. Banks of up to 18 digits are folded into a long and
+    // summed in a WideSum; wider banks are built 18 digits at a time into a BigInteger.
+    static final class JoltageTotal {
+        private final int pick;
+        private final WideSum total = new WideSum();
+        private BigInteger wideTotal = BigInteger.ZERO;
+
+        JoltageTotal(int pick) {
+            this.pick = pick;
+        }
+
+        void add(char[] digits) {
+            if (pick <= MAX_LONG_PICK) {
+                total.add(foldDigits(digits, 0, pick));
+                return;
+            }
+            BigInteger value = BigInteger.ZERO;
+            for (int from = 0; from < pick; from += MAX_LONG_PICK) {
+                int to = Math.min(pick, from + MAX_LONG_PICK);
+                value = value.multiply(BigInteger.TEN.pow(to - from))
+                        .add(BigInteger.valueOf(foldDigits(digits, from, to)));
+            }
+            wideTotal = wideTotal.add(value);
+        }
+
+        JoltageTotal merge(JoltageTotal other) {
+            total.add(other.total);
+            wideTotal = wideTotal.add(other.wideTotal);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return pick <= MAX_LONG_PICK ? total.toString() : wideTotal.toString();
+        }
+    }
+
+    // Value of the decimal digits digits[from..to); at most 18 of them.
+    private static long foldDigits(char[] digits, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (digits[i] - '0');
+        }
+        return value;
+    }
+
+    // Leaves the largest subsequence of the given length in stack[0..keep).
+    // stack only needs keep chars; callers reuse it across banks.
+    private static void maxSubsequenceOfLength(String digits, int keep, char[] stack) {
         int n = digits.length();
         if (n < keep) {
             throw new IllegalArgumentException(
@@ -63,7 +134,6 @@ public class Lobby {
         }
 
         int toRemove = n - keep;
-        char[] stack = new char[n];
         int size = 0;
 
         for (int i = 0; i < n; i++) {
@@ -72,16 +142,386 @@ public class Lobby {
                 size--;
                 toRemove--;
             }
-            stack[size++] = c;
+            if (size < keep) {
+                stack[size++] = c;
+            } else {
+                // Full stack: this digit would be removed later anyway.
+                toRemove--;
+            }
         }
+    }
+
+    // ------------------------ streaming mode ------------------------
 
-        size -= toRemove;
-        return new String(stack, 0, keep);
+    // Usage: java Lobby --stream input.txt [--pick N]
+    //
+    // Two readers walk the same file. For each bank the lookahead reader counts the
+    // digits up to the next newline, which gives the removal budget n - k, and then the
+    // digit reader feeds that bank through the same capped O(k) stack as
+    // maxSubsequenceOfLength. No bank is ever held in memory, so banks can be
+    // gigabytes long.
+    private static void solveStreaming(Path file, FastOutput out, int pick) throws IOException {
+        JoltageTotal total = new JoltageTotal(pick);
+        char[] stack = new char[pick];
+        try (ByteReader lookahead = new ByteReader(Files.newInputStream(file));
+             ByteReader digits = new ByteReader(Files.newInputStream(file))) {
+            while (true) {
+                long n = 0;
+                int c;
+                while ((c = lookahead.read()) != -1 && c != '\n') {
+                    if (c > ' ') n++;
+                }
+                // Blank line or EOF ends the banks, like solve()
+                if (n == 0) break;
+                if (n < pick) {
+                    throw new IllegalArgumentException(
+                            "Bank length " + n + " is smaller than required " + pick + ".");
+                }
+
+                long toRemove = n - pick;
+                int size = 0;
+                while ((c = digits.read()) != -1 && c != '\n') {
+                    if (c <= ' ') continue;
+                    while (toRemove > 0 && size > 0 && stack[size - 1] < c) {
+                        size--;
+                        toRemove--;
+                    }
+                    if (size < pick) {
+                        stack[size++] = (char) c;
+                    } else {
+                        toRemove--;
+                    }
+                }
+                total.add(stack);
+            }
+        }
+        out.println(total);
+    }
+
+    // ------------------------ parallel mode ------------------------
+
+    // Usage: java Lobby --parallel input.txt [--pick N]
+    //
+    // Banks are independent, so the file is memory-mapped in newline-aligned slices,
+    // each slice runs the capped monotonic stack on a ForkJoinPool, and the per-slice
+    // JoltageTotals are merged. Blank lines are skipped rather than ending the input,
+    // since a slice cannot know whether an earlier one hit a blank line.
+
+    // Bytes per leaf slice; each one is mapped separately, so files over 2 GB work.
+    private static final long PARALLEL_CHUNK = 1 << 24;
+
+    private static void solveParallel(Path file, FastOutput out, int pick) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            out.println(ForkJoinPool.commonPool().invoke(new ChunkTask(channel, 0, channel.size(), pick)));
+        }
+    }
+
+    static JoltageTotal sumBanks(ByteBuffer buf, int pick) {
+        JoltageTotal total = new JoltageTotal(pick);
+        char[] stack = new char[pick];
+        int i = buf.position();
+        int limit = buf.limit();
+        while (i < limit) {
+            // The bank length sets the removal budget, so measure the line first.
+            int lineEnd = i;
+            long n = 0;
+            for (; lineEnd < limit && buf.get(lineEnd) != '\n'; lineEnd++) {
+                if (buf.get(lineEnd) > ' ') n++;
+            }
+            if (n > 0) {
+                if (n < pick) {
+                    throw new IllegalArgumentException(
+                            "Bank length " + n + " is smaller than required " + pick + ".");
+                }
+                long toRemove = n - pick;
+                int size = 0;
+                for (int j = i; j < lineEnd; j++) {
+                    char c = (char) buf.get(j);
+                    if (c <= ' ') continue;
+                    while (toRemove > 0 && size > 0 && stack[size - 1] < c) {
+                        size--;
+                        toRemove--;
+                    }
+                    if (size < pick) {
+                        stack[size++] = c;
+                    } else {
+                        toRemove--;
+                    }
+                }
+                total.add(stack);
+            }
+            i = lineEnd + 1;
+        }
+        return total;
+    }
+
+    static final class ChunkTask extends RecursiveTask<JoltageTotal> {
+        private final FileChannel channel;
+        private final long from, to;
+        private final int pick;
+
+        ChunkTask(FileChannel channel, long from, long to, int pick) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.pick = pick;
+        }
+
+        @Override
+        protected JoltageTotal compute() {
+            try {
+                long mid = to - from <= PARALLEL_CHUNK ? to : nextLineStart(from + (to - from) / 2);
+                if (mid >= to) {
+                    return sumBanks(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), pick);
+                }
+                ChunkTask left = new ChunkTask(channel, from, mid, pick);
+                left.fork();
+                JoltageTotal right = new ChunkTask(channel, mid, to, pick).compute();
+                return left.join().merge(right);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Offset just past the first newline at or after pos, so no bank is cut in two.
+        private long nextLineStart(long pos) throws IOException {
+            ByteBuffer probe = ByteBuffer.allocate(256);
+            while (pos < to) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                if (n <= 0) break;
+                for (int i = 0; i < n && pos + i < to; i++) {
+                    if (probe.get(i) == '\n') return pos + i + 1;
+                }
+                pos += n;
+            }
+            return to;
+        }
+    }
+
+    // ------------------------ multi-k report ------------------------
+
+    // Usage: java Lobby --report K < input.txt
+    //
+    // Prints "k total" for every k = 1..K in a single pass per bank instead of one
+    // full run per k. best[j] is the largest length-j subsequence of the digits seen
+    // so far; each new digit d can extend any best[j - 1], so going from high j to low
+    // j, best[j] = max(best[j], best[j - 1] * 10 + d). That is O(n * K) per bank on a
+    // primitive array. A bank shorter than k adds nothing to the total for k.
+    private static void solveReport(ByteReader in, FastOutput out, int maxPick) throws IOException {
+        if (maxPick > MAX_LONG_PICK) {
+            throw new IllegalArgumentException(
+                    "--report supports K up to " + MAX_LONG_PICK + ", got " + maxPick + ".");
+        }
+        long[] best = new long[maxPick + 1];
+        WideSum[] totals = new WideSum[maxPick + 1];
+        for (int k = 1; k <= maxPick; k++) totals[k] = new WideSum();
+
+        int c = in.read();
+        // An empty line (or EOF) ends the banks, like solve()
+        while (c != -1 && c != '\n' && c != '\r') {
+            Arrays.fill(best, 1, maxPick + 1, -1);
+            int seen = 0;
+            for (; c != -1 && c != '\n'; c = in.read()) {
+                if (c < '0' || c > '9') continue;
+                int d = c - '0';
+                seen++;
+                for (int j = Math.min(seen, maxPick); j >= 1; j--) {
+                    long candidate = best[j - 1] * 10 + d;
+                    if (candidate > best[j]) best[j] = candidate;
+                }
+            }
+            for (int k = 1; k <= maxPick; k++) {
+                if (best[k] >= 0) totals[k].add(best[k]);
+            }
+            c = in.read();
+        }
+
+        for (int k = 1; k <= maxPick; k++) {
+            out.println(k + " " + totals[k]);
+        }
+    }
+
+    // Minimal buffered byte reader (BufferedInputStream.read() is synchronized per byte).
+    static final class ByteReader implements Closeable {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int ptr = 0, len = 0;
+
+        ByteReader(InputStream in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            if (ptr >= len) {
+                ptr = 0;
+                len = in.read(buffer);
+                if (len <= 0) return -1;
+            }
+            return buffer[ptr++];
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ------------------------ WideSum ------------------------
+
+    // Exact running total without BigInteger. It stays on a plain long until an add
+    // overflows (detected with the same sign test Math.addExact uses), then carries on
+    // as a two's-complement 128-bit (hi, lo) pair. Exact up to +/- 2^127.
+    static final class WideSum {
+        private long lo;
+        private long hi;
+        private boolean wide;
+
+        WideSum() {
+        }
+
+        WideSum(long value) {
+            lo = value;
+        }
+
+        void add(long x) {
+            if (!wide) {
+                long r = lo + x;
+                if (((lo ^ r) & (x ^ r)) >= 0) {
+                    lo = r;
+                    return;
+                }
+                promote();
+            }
+            addWide(x >> 63, x);
+        }
+
+        // Adds the 128-bit value (xHi, xLo).
+        void add(long xHi, long xLo) {
+            if (xHi == xLo >> 63) {
+                add(xLo);
+                return;
+            }
+            promote();
+            addWide(xHi, xLo);
+        }
+
+        void add(WideSum other) {
+            add(other.high(), other.low());
+        }
+
+        void subtract(long xHi, long xLo) {
+            add(~xHi + (xLo == 0 ? 1 : 0), -xLo);
+        }
+
+        // Adds a * b exactly; Math.multiplyHigh gives the upper 64 bits of the product.
+        void addProduct(long a, long b) {
+            add(Math.multiplyHigh(a, b), a * b);
+        }
+
+        // Multiplies a non-negative total by a non-negative factor.
+        // Throws ArithmeticException if the product needs more than 127 bits.
+        void multiply(long factor) {
+            if (factor < 0 || high() < 0) {
+                throw new IllegalArgumentException("multiply() needs non-negative operands.");
+            }
+            if (!wide) {
+                long pLo = lo * factor;
+                if (Math.multiplyHigh(lo, factor) == 0 && pLo >= 0) {
+                    lo = pLo;
+                    return;
+                }
+                promote();
+            }
+            // (hi * 2^64 + lo) * factor, with lo treated as unsigned
+            long carry = Math.multiplyHigh(lo, factor) + ((lo >> 63) & factor);
+            long newHi = Math.addExact(Math.multiplyExact(hi, factor), carry);
+            if (newHi < 0) throw new ArithmeticException("Total exceeds 128 bits.");
+            hi = newHi;
+            lo = lo * factor;
+        }
+
+        long high() {
+            return wide ? hi : lo >> 63;
+        }
+
+        long low() {
+            return lo;
+        }
+
+        private void promote() {
+            if (!wide) {
+                hi = lo >> 63;
+                wide = true;
+            }
+        }
+
+        private void addWide(long xHi, long xLo) {
+            long r = lo + xLo;
+            long carry = Long.compareUnsigned(r, lo) < 0 ? 1 : 0;
+            lo = r;
+            hi += xHi + carry;
+        }
+
+        @Override
+        public String toString() {
+            if (!wide || hi == lo >> 63) return Long.toString(lo);
+            return BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo))).toString();
+        }
     }
 
     public static void main(String[] args) {
+        int pick = DEFAULT_PICK;
+        String streamFile = null;
+        int reportK = 0;
+        String parallelFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--pick":
+                    pick = Integer.parseInt(args[++i]);
+                    break;
+                case "--stream":
+                    streamFile = args[++i];
+                    break;
+                case "--parallel":
+                    parallelFile = args[++i];
+                    break;
+                case "--report":
+                    reportK = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (pick < 1) {
+            throw new IllegalArgumentException("PICK must be at least 1, got " + pick + ".");
+        }
+        if (reportK > 0) {
+            try (ByteReader in = new ByteReader(System.in); FastOutput out = new FastOutput()) {
+                solveReport(in, out, reportK);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (parallelFile != null) {
+            try (FastOutput out = new FastOutput()) {
+                solveParallel(Paths.get(parallelFile), out, pick);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (streamFile != null) {
+            try (FastOutput out = new FastOutput()) {
+                solveStreaming(Paths.get(streamFile), out, pick);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            solve(sc, out, pick);
         } catch (Exception e) {
             e.printStackTrace();
         }
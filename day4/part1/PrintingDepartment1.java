@@ -6,76 +6,401 @@
  */
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
 
 public class PrintingDepartment1 {
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
-        // First, I need to read the whole grid into memory. 
+    private static void solve(FastScanner sc, FastOutput out, Neighbourhood rule) throws Exception {
+        // First, I need to read the whole grid into memory.
+        // Instead of keeping every line as a String and then a char[][] (2 bytes per cell),
+        // I pack each row straight into a bitboard: one bit per cell, 64 cells per long.
         // Since I don't know how many lines there are beforehand, I'll use a list.
-        List<String> rawLines = new ArrayList<>();
+        List<long[]> packedRows = new ArrayList<>();
+        int cols = 0;
         while (true) {
             String line = sc.nextLine();
             // Stop if the line is null (EOF) or empty (end of input block)
             if (line == null || line.isEmpty()) break;
-            rawLines.add(line);
+            if (packedRows.isEmpty()) cols = line.length();
+            packedRows.add(packRow(line, cols));
         }
 
-        int rows = rawLines.size();
+        int rows = packedRows.size();
         if (rows == 0) return; // safety check for empty input
-        int cols = rawLines.get(0).length();
 
-        // Convert list to a 2D char array for easier coordinate access (grid[r][c])
-        char[][] grid = new char[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            grid[i] = rawLines.get(i).toCharArray();
+        long[][] grid = packedRows.toArray(new long[0][]);
+
+        // Print the final answer
+        out.println(rule.isDefault() ? countAccessible(grid, (cols + 63) >>> 6) : countAccessible(grid, cols, rule));
+    }
+
+    // Bit c of word c / 64 is set when column c holds a roll of paper ('@').
+    // Anything past the first row's width is dropped, so every row has the same shape.
+    static long[] packRow(String line, int cols) {
+        long[] row = new long[(cols + 63) >>> 6];
+        int n = Math.min(line.length(), cols);
+        for (int c = 0; c < n; c++) {
+            if (line.charAt(c) == '@') row[c >>> 6] |= 1L << (c & 63);
+        }
+        return row;
+    }
+
+    // Counts rolls with fewer than 4 paper neighbours, 64 cells at a time.
+    //
+    // Note: Instead of walking the 8 dRow/dCol offsets per cell, I build the 8 neighbour
+    // masks for a whole word (the rows above and below, plus each of the three rows
+    // shifted one column left and right) and add them with bitwise adders, one count
+    // per bit lane, so "fewer than 4" is answered for all 64 cells at once.
+    // Cells outside the grid read as empty words, which replaces the bounds checks.
+    static long countAccessible(long[][] grid, int words) {
+        long[] empty = new long[words];
+        long accessibleCount = 0;
+
+        for (int r = 0; r < grid.length; r++) {
+            long[] up = r > 0 ? grid[r - 1] : empty;
+            long[] down = r + 1 < grid.length ? grid[r + 1] : empty;
+            accessibleCount += countRow(up, grid[r], down);
+        }
+        return accessibleCount;
+    }
+
+    // Accessible rolls in row `mid`, given the rows directly above and below it.
+    static long countRow(long[] up, long[] mid, long[] down) {
+        long accessibleCount = 0;
+        for (int w = 0; w < mid.length; w++) {
+            long cells = mid[w];
+            // We only care about rolls of paper; skip all-empty words outright.
+            if (cells == 0) continue;
+
+            // The rule: Forklifts can access if FEWER than 4 neighbors are paper.
+            accessibleCount += Long.bitCount(fewerThanFour(cells,
+                    up[w], down[w],
+                    west(up, w), west(mid, w), west(down, w),
+                    east(up, w), east(mid, w), east(down, w)));
         }
+        return accessibleCount;
+    }
 
-        int accessibleCount = 0;
+    // Lanes of `cells` with fewer than 4 of the 8 neighbour masks set, in straight-line
+    // code so nothing is allocated per word. Two full adders and a half adder fold the
+    // 8 masks into a ones bit plus four "twos" carries (k1..k4); the count is
+    // ones + 2 * (k1 + k2 + k3 + k4), which stays below 4 exactly when at most one carry is set.
+    private static long fewerThanFour(long cells, long n0, long n1, long n2, long n3,
+                                      long n4, long n5, long n6, long n7) {
+        long x1 = n0 ^ n1, s1 = x1 ^ n2, k1 = (n0 & n1) | (x1 & n2);
+        long x2 = n3 ^ n4, s2 = x2 ^ n5, k2 = (n3 & n4) | (x2 & n5);
+        long s3 = n6 ^ n7, k3 = n6 & n7;
+        long x4 = s1 ^ s2, k4 = (s1 & s2) | (x4 & s3);
+        long twoCarries = (k1 & k2) | (k3 & k4) | ((k1 | k2) & (k3 | k4));
+        return cells & ~twoCarries;
+    }
 
-        // Note: These arrays represent the 8 directions (offsets) for neighbors:
-        // Top-Left, Top, Top-Right, Left, Right, Bottom-Left, Bottom, Bottom-Right.
-        // It's way cleaner than writing 8 if-statements manually!
-        int[] dRow = {-1, -1, -1,  0, 0,  1, 1, 1};
-        int[] dCol = {-1,  0,  1, -1, 1, -1, 0, 1};
+    // Same question for any Neighbourhood: a summed-area table over the grid answers each
+    // roll's neighbour count in O(1), so a large radius costs no more than radius 1.
+    static long countAccessible(long[][] grid, int cols, Neighbourhood rule) {
+        int rows = grid.length;
+        byte[] paper = new byte[Math.multiplyExact(rows, cols)];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                paper[r * cols + c] = (byte) ((grid[r][c >>> 6] >>> (c & 63)) & 1);
+            }
+        }
+        int[] sat = Neighbourhood.summedAreaTable(paper, rows, cols);
+        rule = rule.clampedTo(rows, cols);
 
-        // Iterate through every cell in the grid
+        long accessibleCount = 0;
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                
-                // We only care about rolls of paper ('@'). Skip empty spots ('.').
-                if (grid[r][c] == '@') {
-                    int neighborPaperCount = 0;
-
-                    // Check all 8 neighbors
-                    for (int i = 0; i < 8; i++) {
-                        int nr = r + dRow[i];
-                        int nc = c + dCol[i];
-
-                        // Important: Check bounds so we don't get an IndexOutOfBoundsException
-                        // at the edges of the map.
-                        if (nr >= 0 && nr < rows && nc >= 0 && nc < cols) {
-                            if (grid[nr][nc] == '@') {
-                                neighborPaperCount++;
+                if (paper[r * cols + c] != 0 && rule.count(sat, rows, cols, r, c) < rule.threshold) {
+                    accessibleCount++;
+                }
+            }
+        }
+        return accessibleCount;
+    }
+
+    // Bit c of the result is the cell at column c - 1 (the neighbour on the left).
+    private static long west(long[] row, int w) {
+        long carry = w > 0 ? row[w - 1] >>> 63 : 0L;
+        return (row[w] << 1) | carry;
+    }
+
+    // Bit c of the result is the cell at column c + 1 (the neighbour on the right).
+    private static long east(long[] row, int w) {
+        long carry = w + 1 < row.length ? row[w + 1] << 63 : 0L;
+        return (row[w] >>> 1) | carry;
+    }
+
+    // ------------------------ off-heap bitmap grid ------------------------
+
+    // A warehouse stored at 1 bit per cell in a memory-mapped temp file instead of on the heap.
+    // Rows are streamed from the input straight into the file, so the only heap the solvers
+    // need is a handful of row buffers; the OS pages the bitmap in and out as they sweep it.
+    // Row r is `words` longs starting at byte r * words * 8, with bit c of word c / 64 set
+    // for a roll of paper. The file lives in java.io.tmpdir and is deleted on close.
+    static final class BitGrid implements Closeable {
+        // A single MappedByteBuffer cannot exceed 2 GB, so rows are mapped in regions of this size.
+        private static final long REGION_BYTES = 1L << 30;
+
+        final int rows, cols, words;
+        private final FileChannel channel;
+        private final MappedByteBuffer[] regions;
+        private final int rowsPerRegion;
+
+        private BitGrid(FileChannel channel, int rows, int cols) throws IOException {
+            this.channel = channel;
+            this.rows = rows;
+            this.cols = cols;
+            this.words = (cols + 63) >>> 6;
+            long rowBytes = Math.max(1, words * 8L);
+            this.rowsPerRegion = (int) Math.max(1, Math.min(REGION_BYTES / rowBytes, Integer.MAX_VALUE));
+            this.regions = new MappedByteBuffer[(int) ((rows + (long) rowsPerRegion - 1) / rowsPerRegion)];
+            for (int i = 0; i < regions.length; i++) {
+                long firstRow = (long) i * rowsPerRegion;
+                long length = Math.min(rowsPerRegion, rows - firstRow) * rowBytes;
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, firstRow * rowBytes, length);
+                regions[i].order(ByteOrder.nativeOrder());
+            }
+        }
+
+        // Reads rows until EOF or the first empty line, like the char[][] loaders.
+        // The first row fixes the width; longer rows are cut and shorter ones padded with empty cells.
+        static BitGrid load(InputStream in) throws IOException {
+            Path file = Files.createTempFile("warehouse", ".bits");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            try {
+                byte[] buf = new byte[1 << 16];
+                ByteBuffer pending = ByteBuffer.allocate(1 << 16).order(ByteOrder.nativeOrder());
+                long[] row = new long[1];
+                int cols = -1, rows = 0, c = 0;
+                boolean eof = false;
+                while (!eof) {
+                    int n = in.read(buf);
+                    if (n < 0) {
+                        eof = true;
+                        n = 0;
+                    }
+                    for (int i = 0; i <= n; i++) {
+                        int b = i < n ? buf[i] : (eof ? '\n' : -1);
+                        if (b == -1 || b == '\r') continue;
+                        if (b != '\n') {
+                            if (cols < 0) {
+                                if ((c >>> 6) == row.length) row = Arrays.copyOf(row, row.length * 2);
+                            } else if (c >= cols) {
+                                c++;
+                                continue;
+                            }
+                            if (b == '@') row[c >>> 6] |= 1L << (c & 63);
+                            c++;
+                            continue;
+                        }
+                        // Stop at EOF or an empty line (end of input block)
+                        if (c == 0) {
+                            eof = true;
+                            break;
+                        }
+                        if (cols < 0) {
+                            cols = c;
+                            row = Arrays.copyOf(row, (cols + 63) >>> 6);
+                            if (pending.capacity() < row.length * 8) {
+                                pending = ByteBuffer.allocate(row.length * 8).order(ByteOrder.nativeOrder());
                             }
                         }
+                        if (pending.remaining() < row.length * 8) flush(channel, pending);
+                        for (long word : row) pending.putLong(word);
+                        Arrays.fill(row, 0L);
+                        rows++;
+                        c = 0;
                     }
+                }
+                flush(channel, pending);
+                return new BitGrid(channel, rows, Math.max(cols, 0));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
 
-                    // The rule: Forklifts can access if FEWER than 4 neighbors are paper.
-                    if (neighborPaperCount < 4) {
-                        accessibleCount++;
-                    }
+        private static void flush(FileChannel channel, ByteBuffer pending) throws IOException {
+            pending.flip();
+            while (pending.hasRemaining()) channel.write(pending);
+            pending.clear();
+        }
+
+        void readRow(int r, long[] dst) {
+            MappedByteBuffer region = regions[r / rowsPerRegion];
+            int base = (r % rowsPerRegion) * words * 8;
+            for (int w = 0; w < words; w++) dst[w] = region.getLong(base + w * 8);
+        }
+
+        void writeRow(int r, long[] src) {
+            MappedByteBuffer region = regions[r / rowsPerRegion];
+            int base = (r % rowsPerRegion) * words * 8;
+            for (int w = 0; w < words; w++) region.putLong(base + w * 8, src[w]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Usage: java PrintingDepartment1 --mapped < input.txt
+    //
+    // Streams the grid into a BitGrid and slides a three-row window down it, so the heap
+    // holds three rows no matter how large the warehouse is.
+    private static void solveMapped(InputStream in, FastOutput out) throws IOException {
+        try (BitGrid grid = BitGrid.load(in)) {
+            if (grid.rows == 0) return; // safety check for empty input
+
+            long[] up = new long[grid.words];
+            long[] mid = new long[grid.words];
+            long[] down = new long[grid.words];
+            grid.readRow(0, mid);
+
+            long accessibleCount = 0;
+            for (int r = 0; r < grid.rows; r++) {
+                if (r + 1 < grid.rows) grid.readRow(r + 1, down);
+                else Arrays.fill(down, 0L);
+                accessibleCount += countRow(up, mid, down);
+
+                long[] recycled = up;
+                up = mid;
+                mid = down;
+                down = recycled;
+            }
+            out.println(accessibleCount);
+        }
+    }
+
+    // ------------------------ configurable neighbourhoods ------------------------
+
+    // Which cells count as neighbours, and how few paper neighbours make a roll accessible.
+    // - "moore": every cell within `radius` steps in both directions, a (2r+1) x (2r+1) square.
+    // - "cross": the cells within `radius` steps along the same row or the same column.
+    // Both shapes are made of rectangles, so a count is a few lookups in a summed-area
+    // table: O(1) per cell whatever the radius, instead of O(r^2) neighbour checks.
+    // A diamond (von Neumann) shape is not a union of a few rectangles, so it is not offered;
+    // at radius 1 it is the same as "cross".
+    static final class Neighbourhood {
+        static final int DEFAULT_RADIUS = 1;
+        static final String DEFAULT_SHAPE = "moore";
+        static final int DEFAULT_THRESHOLD = 4;
+
+        final int radius;
+        final String shape;
+        final int threshold;
+        // Parsed once, so the per-cell count does not compare strings.
+        private final boolean moore;
+
+        Neighbourhood(int radius, String shape, int threshold) {
+            if (radius < 1) throw new IllegalArgumentException("Radius must be at least 1: " + radius);
+            if (!shape.equals("moore") && !shape.equals("cross")) {
+                throw new IllegalArgumentException("Unknown neighbourhood shape (moore or cross): " + shape);
+            }
+            this.radius = radius;
+            this.shape = shape;
+            this.threshold = threshold;
+            this.moore = shape.equals("moore");
+        }
+
+        // A radius past the grid's longer side reaches the same cells as that side, so
+        // cap it there; this also keeps r + radius and c + radius well inside an int.
+        Neighbourhood clampedTo(int rows, int cols) {
+            int limit = Math.max(rows, cols);
+            return radius <= limit ? this : new Neighbourhood(limit, shape, threshold);
+        }
+
+        // The puzzle's own rule: 8 neighbours, fewer than 4 of them paper.
+        boolean isDefault() {
+            return radius == DEFAULT_RADIUS && shape.equals(DEFAULT_SHAPE) && threshold == DEFAULT_THRESHOLD;
+        }
+
+        // sat[(r + 1) * (cols + 1) + c + 1] is the number of paper cells in rows 0..r, columns 0..c.
+        static int[] summedAreaTable(byte[] paper, int rows, int cols) {
+            int[] sat = new int[Math.multiplyExact(rows + 1, cols + 1)];
+            refresh(sat, paper, rows, cols, 0, 0);
+            return sat;
+        }
+
+        // Recomputes every entry that depends on a cell at or below fromRow and at or right
+        // of fromCol; nothing above or to the left of that corner can have changed.
+        static void refresh(int[] sat, byte[] paper, int rows, int cols, int fromRow, int fromCol) {
+            int width = cols + 1;
+            for (int r = fromRow; r < rows; r++) {
+                int row = (r + 1) * width;
+                for (int c = fromCol; c < cols; c++) {
+                    sat[row + c + 1] = paper[r * cols + c]
+                            + sat[row - width + c + 1] + sat[row + c] - sat[row - width + c];
                 }
             }
         }
 
-        // Print the final answer
-        out.println(accessibleCount);
+        // Paper cells in rows r0..r1 and columns c0..c1, clipped to the grid.
+        static int rectangle(int[] sat, int rows, int cols, int r0, int c0, int r1, int c1) {
+            int width = cols + 1;
+            r0 = Math.max(r0, 0);
+            c0 = Math.max(c0, 0);
+            r1 = Math.min(r1, rows - 1) + 1;
+            c1 = Math.min(c1, cols - 1) + 1;
+            return sat[r1 * width + c1] - sat[r0 * width + c1] - sat[r1 * width + c0] + sat[r0 * width + c0];
+        }
+
+        // Paper neighbours of the roll at (r, c), not counting the roll itself.
+        int count(int[] sat, int rows, int cols, int r, int c) {
+            if (moore) {
+                return rectangle(sat, rows, cols, r - radius, c - radius, r + radius, c + radius) - 1;
+            }
+            // The row arm and the column arm both include the roll itself.
+            return rectangle(sat, rows, cols, r, c - radius, r, c + radius)
+                    + rectangle(sat, rows, cols, r - radius, c, r + radius, c) - 2;
+        }
     }
 
+    // Usage: java PrintingDepartment1 [--mapped] [--radius R] [--shape moore|cross] [--threshold T] < input.txt
     public static void main(String[] args) {
+        boolean mapped = false;
+        int radius = Neighbourhood.DEFAULT_RADIUS;
+        String shape = Neighbourhood.DEFAULT_SHAPE;
+        int threshold = Neighbourhood.DEFAULT_THRESHOLD;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--mapped":
+                    mapped = true;
+                    break;
+                case "--radius":
+                    radius = Integer.parseInt(args[++i]);
+                    break;
+                case "--shape":
+                    shape = args[++i];
+                    break;
+                case "--threshold":
+                    threshold = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        Neighbourhood rule = new Neighbourhood(radius, shape, threshold);
+        // The bitmap sweep is built around the 8-neighbour rule.
+        if (mapped && !rule.isDefault()) {
+            throw new IllegalArgumentException("--mapped only supports the default neighbourhood");
+        }
+
+        if (mapped) {
+            try (FastOutput out = new FastOutput()) {
+                solveMapped(new BufferedInputStream(System.in, 1 << 16), out);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            solve(sc, out, rule);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -5,11 +5,15 @@
  */
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class PrintingDepartment2 {
 
-    private static void solve(FastScanner sc, FastOutput out) throws Exception {
+    private static void solve(FastScanner sc, FastOutput out, RunOptions options) throws Exception {
         // First, I need to read the whole grid into memory. 
         // Since I don't know how many lines there are beforehand, I'll use a list.
         List<String> rawLines = new ArrayList<>();
@@ -30,69 +34,848 @@ public class PrintingDepartment2 {
             grid[i] = rawLines.get(i).toCharArray();
         }
 
-        long totalRemoved = 0;
-        
-        // Note: These arrays represent the 8 directions (offsets) for neighbors:
-        // Top-Left, Top, Top-Right, Left, Right, Bottom-Left, Bottom, Bottom-Right.
-        int[] dRow = {-1, -1, -1,  0, 0,  1, 1, 1};
-        int[] dCol = {-1,  0,  1, -1, 1, -1, 0, 1};
-
-        // Part 2: We need to keep removing paper until we can't remove any more.
-        // This is a simulation loop.
-        while (true) {
-            // List to store coordinates of paper rolls to remove in *this* round.
-            // We need to find them all first before removing them, otherwise removing
-            // one might affect the neighbor count of the one next to it instantly.
-            List<int[]> toRemove = new ArrayList<>();
+        if (!options.rule.isDefault()) {
+            // Print the total number of rolls removed
+            out.println(peelWindowed(grid, rows, cols, options.rule));
+            return;
+        }
+        if (options.tracked()) {
+            peelTracked(Peeler.fromGrid(grid, rows, cols), options, out);
+            return;
+        }
+
+        // Print the total number of rolls removed
+        out.println(options.threads > 0 ? peelTiled(grid, rows, cols, options.threads) : peelAll(grid, rows, cols));
+    }
+
+    // Part 2: We need to keep removing paper until we can't remove any more.
+    //
+    // Rescanning the whole grid every round is O(rounds x cells), but a roll's neighbour
+    // count only changes when one of its 8 neighbours is removed. So I count neighbours
+    // once, keep the counts in a byte[], and drive the rounds from a worklist:
+    // removing a roll decrements its neighbours, and a neighbour joins the next round
+    // exactly when its count drops from 4 to 3. Counts only ever go down, so every
+    // roll is queued at most once and the total work is O(cells + removals).
+    //
+    // The rounds are still synchronous: a round's whole batch is taken off the grid
+    // before any neighbour is decremented, so nothing removed in this round can
+    // make another roll removable in the same round.
+    static long peelAll(char[][] grid, int rows, int cols) {
+        Peeler peeler = Peeler.fromGrid(grid, rows, cols);
+        while (peeler.runRound() > 0) {
+            // keep peeling
+        }
+        return peeler.removed();
+    }
+
+    // Number of cells in a rows x cols array, for engines that index cells with an int.
+    // Rejects grids past that limit up front instead of overflowing an index halfway through.
+    static int checkedCells(long rows, long cols) {
+        long cells = rows * cols;
+        if (rows < 0 || cols < 0 || cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + rows + " x " + cols
+                    + " cells is too large for the in-heap engines; use --mapped.");
+        }
+        return (int) cells;
+    }
+
+    static final class Peeler {
+        // Marks a cell with no paper (empty from the start, or already removed).
+        static final byte EMPTY = -1;
+
+        private static final int CHECKPOINT_MAGIC = 0x50444331; // "PDC1"
+        private static final int DEPTH_MAGIC = 0x50444D31;      // "PDM1"
+
+        final int rows, cols, stride;
+        // The grid gets a one-cell empty border so the neighbour offsets never leave
+        // the array, which does away with the bounds checks.
+        final byte[] counts;
+        private final int[] offsets = new int[8];
+
+        // Every roll appears in the queue at most once, so one int per cell is enough.
+        // [0, roundStart) is everything removed so far, in removal order, and
+        // [roundStart, tail) is the next round. Round k ends at roundEnds[k - 1].
+        private final int[] queue;
+        private int roundStart, tail;
+        private int[] roundEnds = new int[64];
+        int rounds;
+
+        private Peeler(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.stride = cols + 2;
+            // Cell indices are ints, so row * cols + col (and its padded form) must fit in one.
+            this.counts = new byte[checkedCells(rows + 2L, cols + 2L)];
+            this.queue = new int[checkedCells(rows, cols)];
+            Arrays.fill(counts, EMPTY);
 
-            // Iterate through every cell in the grid
+            // Note: These arrays represent the 8 directions (offsets) for neighbors:
+            // Top-Left, Top, Top-Right, Left, Right, Bottom-Left, Bottom, Bottom-Right.
+            int[] dRow = {-1, -1, -1,  0, 0,  1, 1, 1};
+            int[] dCol = {-1,  0,  1, -1, 1, -1, 0, 1};
+            for (int i = 0; i < 8; i++) offsets[i] = dRow[i] * stride + dCol[i];
+        }
+
+        static Peeler fromGrid(char[][] grid, int rows, int cols) {
+            Peeler peeler = new Peeler(rows, cols);
             for (int r = 0; r < rows; r++) {
                 for (int c = 0; c < cols; c++) {
-                    
-                    // We only care about rolls of paper ('@').
-                    if (grid[r][c] == '@') {
-                        int neighborPaperCount = 0;
-
-                        // Check all 8 neighbors
-                        for (int i = 0; i < 8; i++) {
-                            int nr = r + dRow[i];
-                            int nc = c + dCol[i];
-
-                            // Check bounds
-                            if (nr >= 0 && nr < rows && nc >= 0 && nc < cols) {
-                                if (grid[nr][nc] == '@') {
-                                    neighborPaperCount++;
-                                }
-                            }
+                    if (grid[r][c] == '@') peeler.counts[peeler.cell(r, c)] = 0;
+                }
+            }
+            peeler.countNeighbours();
+            return peeler;
+        }
+
+        private int cell(int r, int c) {
+            return (r + 1) * stride + c + 1;
+        }
+
+        // row * cols + col of a padded cell index; the constructor's checkedCells guarantees
+        // rows * cols fits in an int, so this never overflows.
+        private int rowMajor(int cell) {
+            return (cell / stride - 1) * cols + cell % stride - 1;
+        }
+
+        // Fills in the neighbour count of every roll still on the grid and queues the
+        // ones that are already removable as the next round.
+        private void countNeighbours() {
+            for (int cell = 0; cell < counts.length; cell++) {
+                if (counts[cell] == EMPTY) continue;
+                int neighborPaperCount = 0;
+                for (int d : offsets) {
+                    if (counts[cell + d] != EMPTY) neighborPaperCount++;
+                }
+                counts[cell] = (byte) neighborPaperCount;
+                // The rule: Forklifts can access (and remove) if FEWER than 4 neighbors are paper.
+                if (neighborPaperCount < 4) queue[tail++] = cell;
+            }
+        }
+
+        // Runs one synchronous round and returns how many rolls it removed (0 when done).
+        int runRound() {
+            int roundEnd = tail;
+            if (roundStart == roundEnd) return 0;
+
+            // Take the whole round off the grid first...
+            for (int i = roundStart; i < roundEnd; i++) counts[queue[i]] = EMPTY;
+
+            // ...then let each removal tell its surviving neighbours.
+            for (int i = roundStart; i < roundEnd; i++) {
+                int cell = queue[i];
+                for (int d : offsets) {
+                    int n = cell + d;
+                    if (counts[n] != EMPTY && --counts[n] == 3) queue[tail++] = n;
+                }
+            }
+
+            if (rounds == roundEnds.length) roundEnds = Arrays.copyOf(roundEnds, rounds * 2);
+            roundEnds[rounds++] = roundEnd;
+            int removedThisRound = roundEnd - roundStart;
+            roundStart = roundEnd;
+            return removedThisRound;
+        }
+
+        long removed() {
+            return roundStart;
+        }
+
+        // Depth map: the round in which every cell was removed, 0 for cells that never held
+        // paper or were never removed. Because the queue is already grouped by round, this
+        // is a single pass over the removals.
+        //
+        // Layout (big-endian): magic "PDM1", rows, cols, rounds, bytes per cell (1, 2 or 4),
+        // then rows * cols round numbers in row-major order, using the narrowest width that fits.
+        void writeDepthMap(Path file) throws IOException {
+            int width = rounds <= 0xFF ? 1 : rounds <= 0xFFFF ? 2 : 4;
+            ByteBuffer depths = ByteBuffer.allocate(Math.multiplyExact(Math.multiplyExact(rows, cols), width));
+            int i = 0;
+            for (int round = 1; round <= rounds; round++) {
+                for (; i < roundEnds[round - 1]; i++) {
+                    int at = rowMajor(queue[i]);
+                    if (width == 1) depths.put(at, (byte) round);
+                    else if (width == 2) depths.putShort(at * 2, (short) round);
+                    else depths.putInt(at * 4, round);
+                }
+            }
+            try (DataOutputStream os = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                os.writeInt(DEPTH_MAGIC);
+                os.writeInt(rows);
+                os.writeInt(cols);
+                os.writeInt(rounds);
+                os.writeInt(width);
+                os.write(depths.array());
+            }
+        }
+
+        // Checkpoint: everything needed to carry on after the last finished round.
+        //
+        // Layout (big-endian): magic "PDC1", rows, cols, rounds, removed, the end offset of
+        // every round, the removed cells in removal order (row * cols + col), and the
+        // current grid as one bit per cell, (cols + 63) / 64 longs per row.
+        // The next round is not stored: it is exactly the rolls left with fewer than 4
+        // neighbours, which a resume recomputes from the grid.
+        //
+        // The file is written next to the target and then moved over it, so a crash while
+        // writing leaves the previous checkpoint intact.
+        void writeCheckpoint(Path file) throws IOException {
+            Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream os = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+                os.writeInt(CHECKPOINT_MAGIC);
+                os.writeInt(rows);
+                os.writeInt(cols);
+                os.writeInt(rounds);
+                os.writeInt(roundStart);
+                for (int k = 0; k < rounds; k++) os.writeInt(roundEnds[k]);
+                for (int i = 0; i < roundStart; i++) {
+                    os.writeInt(rowMajor(queue[i]));
+                }
+                int words = (cols + 63) >>> 6;
+                for (int r = 0; r < rows; r++) {
+                    for (int w = 0; w < words; w++) {
+                        long bits = 0L;
+                        for (int c = w << 6; c < Math.min(cols, (w + 1) << 6); c++) {
+                            if (counts[cell(r, c)] != EMPTY) bits |= 1L << (c & 63);
                         }
+                        os.writeLong(bits);
+                    }
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
 
-                        // The rule: Forklifts can access (and remove) if FEWER than 4 neighbors are paper.
-                        if (neighborPaperCount < 4) {
-                            toRemove.add(new int[]{r, c});
+        static Peeler readCheckpoint(Path file) throws IOException {
+            try (DataInputStream is = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                if (is.readInt() != CHECKPOINT_MAGIC) {
+                    throw new IllegalArgumentException("Not a PrintingDepartment2 checkpoint: " + file);
+                }
+                Peeler peeler = new Peeler(is.readInt(), is.readInt());
+                peeler.rounds = is.readInt();
+                int removed = is.readInt();
+                if (peeler.rounds < 0 || removed < 0 || removed > peeler.queue.length) {
+                    throw new IllegalArgumentException("Corrupt checkpoint " + file + ": " + removed
+                            + " removals in " + peeler.rounds + " rounds on a " + peeler.rows + " x " + peeler.cols + " grid");
+                }
+                peeler.roundEnds = new int[Math.max(64, peeler.rounds)];
+                for (int k = 0; k < peeler.rounds; k++) peeler.roundEnds[k] = is.readInt();
+                for (int i = 0; i < removed; i++) {
+                    int at = is.readInt();
+                    if (at < 0 || at >= peeler.queue.length) {
+                        throw new IllegalArgumentException("Corrupt checkpoint " + file + ": cell " + at
+                                + " is outside the " + peeler.rows + " x " + peeler.cols + " grid");
+                    }
+                    peeler.queue[i] = peeler.cell(at / peeler.cols, at % peeler.cols);
+                }
+                peeler.roundStart = peeler.tail = removed;
+                int words = (peeler.cols + 63) >>> 6;
+                for (int r = 0; r < peeler.rows; r++) {
+                    for (int w = 0; w < words; w++) {
+                        long bits = is.readLong();
+                        for (; bits != 0; bits &= bits - 1) {
+                            int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            peeler.counts[peeler.cell(r, c)] = 0;
                         }
                     }
                 }
+                peeler.countNeighbours();
+                return peeler;
+            }
+        }
+    }
+
+    // ------------------------ tracked runs ------------------------
+
+    // Usage: java PrintingDepartment2 [--depth FILE] [--stats]
+    //                                 [--checkpoint FILE [--checkpoint-every N]] [--resume FILE]
+    //
+    // Runs the worklist engine with extras for long simulations:
+    // - --depth writes the round in which every roll was removed (see writeDepthMap).
+    // - --stats writes one line per round to stderr in key=value form:
+    //   "round index=K removed=N total=T elapsed_us=U".
+    // - --checkpoint rewrites a binary checkpoint every N rounds (default 100) and once at the end.
+    // - --resume continues from a checkpoint instead of reading the grid from stdin.
+    static void peelTracked(Peeler peeler, RunOptions options, FastOutput out) throws IOException {
+        while (true) {
+            long startNanos = System.nanoTime();
+            int removedThisRound = peeler.runRound();
+            if (removedThisRound == 0) break;
+            if (options.stats) {
+                System.err.println("round index=" + peeler.rounds
+                        + " removed=" + removedThisRound
+                        + " total=" + peeler.removed()
+                        + " elapsed_us=" + (System.nanoTime() - startNanos) / 1000);
             }
+            if (options.checkpointFile != null && peeler.rounds % options.checkpointEvery == 0) {
+                peeler.writeCheckpoint(options.checkpointFile);
+            }
+        }
+        if (options.checkpointFile != null) peeler.writeCheckpoint(options.checkpointFile);
+        if (options.depthFile != null) peeler.writeDepthMap(options.depthFile);
+
+        // Print the total number of rolls removed
+        out.println(peeler.removed());
+    }
+
+    static final class RunOptions {
+        static final int DEFAULT_CHECKPOINT_EVERY = 100;
 
+        int threads;
+        boolean mapped;
+        boolean stats;
+        Path depthFile, checkpointFile, resumeFile;
+        int checkpointEvery = DEFAULT_CHECKPOINT_EVERY;
+        Neighbourhood rule;
+
+        boolean tracked() {
+            return stats || depthFile != null || checkpointFile != null || resumeFile != null;
+        }
+    }
+
+    // ------------------------ summed-area rounds ------------------------
+
+    // Usage: java PrintingDepartment2 [--radius R] [--shape moore|cross] [--threshold T] < input.txt
+    //
+    // The same synchronous rounds under any Neighbourhood. Counts come from a summed-area
+    // table in O(1) per roll, and the table is kept up to date between rounds rather than
+    // rebuilt: a round's removals only change entries below and to the right of their
+    // top-left corner, so only that part is recomputed. Likewise only rolls within `radius`
+    // of the round's removals can have lost neighbours, so the next scan covers just the
+    // removals' bounding box grown by the radius. Everything outside it already had at
+    // least `threshold` neighbours and still has them.
+    static long peelWindowed(char[][] grid, int rows, int cols, Neighbourhood rule) {
+        byte[] paper = new byte[Math.multiplyExact(rows, cols)];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (grid[r][c] == '@') paper[r * cols + c] = 1;
+            }
+        }
+        int[] sat = Neighbourhood.summedAreaTable(paper, rows, cols);
+        rule = rule.clampedTo(rows, cols);
+        int[] removals = new int[paper.length];
+
+        long totalRemoved = 0;
+        int top = 0, left = 0, bottom = rows - 1, right = cols - 1;
+        while (true) {
+            int size = 0;
+            for (int r = top; r <= bottom; r++) {
+                for (int c = left; c <= right; c++) {
+                    if (paper[r * cols + c] != 0 && rule.count(sat, rows, cols, r, c) < rule.threshold) {
+                        removals[size++] = r * cols + c;
+                    }
+                }
+            }
             // If we found nothing to remove this round, we are done!
-            if (toRemove.isEmpty()) {
-                break;
+            if (size == 0) return totalRemoved;
+            totalRemoved += size;
+
+            int minRow = rows, minCol = cols, maxRow = -1, maxCol = -1;
+            for (int i = 0; i < size; i++) {
+                int r = removals[i] / cols, c = removals[i] % cols;
+                paper[removals[i]] = 0;
+                minRow = Math.min(minRow, r);
+                maxRow = Math.max(maxRow, r);
+                minCol = Math.min(minCol, c);
+                maxCol = Math.max(maxCol, c);
             }
+            Neighbourhood.refresh(sat, paper, rows, cols, minRow, minCol);
 
-            // Otherwise, add to total and actually remove them from the grid
-            totalRemoved += toRemove.size();
-            for (int[] pos : toRemove) {
-                grid[pos[0]][pos[1]] = '.'; // Using '.' to represent empty space/removed paper
+            top = Math.max(0, minRow - rule.radius);
+            bottom = Math.min(rows - 1, maxRow + rule.radius);
+            left = Math.max(0, minCol - rule.radius);
+            right = Math.min(cols - 1, maxCol + rule.radius);
+        }
+    }
+
+    // ------------------------ multi-threaded tiled rounds ------------------------
+
+    // Usage: java PrintingDepartment2 --threads N
+    //
+    // A round's candidate scan only reads the grid as it was at the start of the round,
+    // so the rows can be split into N bands and scanned at the same time. Each worker
+    // scans its own band into a private int[] buffer of cell indices (no object per
+    // removal), then everybody meets at a barrier. The barrier action adds up the round
+    // and decides whether to stop; after it each worker clears its own buffered cells,
+    // and a second barrier keeps the next scan from seeing a half-applied round.
+    // Workers only ever write inside their own band, so the rounds stay exactly the
+    // same as the single-threaded simulation.
+    static long peelTiled(char[][] grid, int rows, int cols, int threads) throws Exception {
+        int stride = cols + 2;
+        byte[] paper = new byte[checkedCells(rows + 2L, cols + 2L)];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (grid[r][c] == '@') paper[(r + 1) * stride + c + 1] = 1;
             }
         }
 
-        // Print the total number of rolls removed
-        out.println(totalRemoved);
+        int bands = Math.min(threads, rows);
+        BandWorker[] workers = new BandWorker[bands];
+        long[] totalRemoved = {0L};
+        boolean[] done = {false};
+        CyclicBarrier scanned = new CyclicBarrier(bands, () -> {
+            long removedThisRound = 0;
+            for (BandWorker w : workers) removedThisRound += w.size;
+            // If we found nothing to remove this round, we are done!
+            if (removedThisRound == 0) done[0] = true;
+            totalRemoved[0] += removedThisRound;
+        });
+        CyclicBarrier applied = new CyclicBarrier(bands);
+
+        Thread[] pool = new Thread[bands];
+        for (int b = 0; b < bands; b++) {
+            int from = 1 + (int) ((long) rows * b / bands);
+            int to = 1 + (int) ((long) rows * (b + 1) / bands);
+            workers[b] = new BandWorker(paper, stride, cols, from, to, scanned, applied, done);
+            pool[b] = new Thread(workers[b], "band-" + b);
+            pool[b].start();
+        }
+        for (Thread t : pool) t.join();
+
+        // Once one worker fails the others only see the broken barrier, so report the
+        // worker that actually failed first.
+        Throwable failure = null;
+        for (BandWorker w : workers) {
+            if (w.failure != null && (failure == null || failure instanceof BrokenBarrierException)) {
+                failure = w.failure;
+            }
+        }
+        if (failure instanceof Exception) throw (Exception) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        return totalRemoved[0];
+    }
+
+    static final class BandWorker implements Runnable {
+        private final byte[] paper;
+        private final int stride, cols, fromRow, toRow;
+        private final CyclicBarrier scanned, applied;
+        private final boolean[] done;
+        private int[] removals = new int[256];
+        int size;
+        Throwable failure;
+
+        BandWorker(byte[] paper, int stride, int cols, int fromRow, int toRow,
+                   CyclicBarrier scanned, CyclicBarrier applied, boolean[] done) {
+            this.paper = paper;
+            this.stride = stride;
+            this.cols = cols;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.scanned = scanned;
+            this.applied = applied;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    scan();
+                    scanned.await();
+                    if (done[0]) return;
+                    for (int i = 0; i < size; i++) paper[removals[i]] = 0;
+                    applied.await();
+                }
+            } catch (Throwable e) {
+                // Anything at all (say an OutOfMemoryError growing `removals`) must break the
+                // barriers, or the other workers would wait on them forever.
+                failure = e;
+                breakBarrier(scanned);
+                breakBarrier(applied);
+            }
+        }
+
+        // reset() would break only the waiters already there: a worker still scanning would
+        // then arrive at a fresh generation and wait forever. Awaiting with the interrupt flag
+        // set breaks the current generation for good, so every later await fails too.
+        private static void breakBarrier(CyclicBarrier barrier) {
+            Thread.currentThread().interrupt();
+            try {
+                barrier.await();
+            } catch (InterruptedException | BrokenBarrierException ignored) {
+                // expected: that is what breaks it
+            } finally {
+                Thread.interrupted();
+            }
+        }
+
+        private void scan() {
+            size = 0;
+            for (int r = fromRow; r < toRow; r++) {
+                int rowStart = r * stride;
+                for (int cell = rowStart + 1; cell <= rowStart + cols; cell++) {
+                    if (paper[cell] == 0) continue;
+                    // The border is always empty, so the 8 reads need no bounds checks.
+                    int neighborPaperCount =
+                            paper[cell - stride - 1] + paper[cell - stride] + paper[cell - stride + 1]
+                          + paper[cell - 1] + paper[cell + 1]
+                          + paper[cell + stride - 1] + paper[cell + stride] + paper[cell + stride + 1];
+                    if (neighborPaperCount < 4) {
+                        if (size == removals.length) removals = Arrays.copyOf(removals, size * 2);
+                        removals[size++] = cell;
+                    }
+                }
+            }
+        }
+    }
+
+    // ------------------------ off-heap bitmap grid ------------------------
+
+    // A warehouse stored at 1 bit per cell in a memory-mapped temp file instead of on the heap.
+    // Rows are streamed from the input straight into the file, so the only heap the solvers
+    // need is a handful of row buffers; the OS pages the bitmap in and out as they sweep it.
+    // Row r is `words` longs starting at byte r * words * 8, with bit c of word c / 64 set
+    // for a roll of paper. The file lives in java.io.tmpdir and is deleted on close.
+    static final class BitGrid implements Closeable {
+        // A single MappedByteBuffer cannot exceed 2 GB, so rows are mapped in regions of this size.
+        private static final long REGION_BYTES = 1L << 30;
+
+        final int rows, cols, words;
+        private final FileChannel channel;
+        private final MappedByteBuffer[] regions;
+        private final int rowsPerRegion;
+
+        private BitGrid(FileChannel channel, int rows, int cols) throws IOException {
+            this.channel = channel;
+            this.rows = rows;
+            this.cols = cols;
+            this.words = (cols + 63) >>> 6;
+            long rowBytes = Math.max(1, words * 8L);
+            this.rowsPerRegion = (int) Math.max(1, Math.min(REGION_BYTES / rowBytes, Integer.MAX_VALUE));
+            this.regions = new MappedByteBuffer[(int) ((rows + (long) rowsPerRegion - 1) / rowsPerRegion)];
+            for (int i = 0; i < regions.length; i++) {
+                long firstRow = (long) i * rowsPerRegion;
+                long length = Math.min(rowsPerRegion, rows - firstRow) * rowBytes;
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, firstRow * rowBytes, length);
+                regions[i].order(ByteOrder.nativeOrder());
+            }
+        }
+
+        // Reads rows until EOF or the first empty line, like the char[][] loaders.
+        // The first row fixes the width; longer rows are cut and shorter ones padded with empty cells.
+        static BitGrid load(InputStream in) throws IOException {
+            Path file = Files.createTempFile("warehouse", ".bits");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            try {
+                byte[] buf = new byte[1 << 16];
+                ByteBuffer pending = ByteBuffer.allocate(1 << 16).order(ByteOrder.nativeOrder());
+                long[] row = new long[1];
+                int cols = -1, rows = 0, c = 0;
+                boolean eof = false;
+                while (!eof) {
+                    int n = in.read(buf);
+                    if (n < 0) {
+                        eof = true;
+                        n = 0;
+                    }
+                    for (int i = 0; i <= n; i++) {
+                        int b = i < n ? buf[i] : (eof ? '\n' : -1);
+                        if (b == -1 || b == '\r') continue;
+                        if (b != '\n') {
+                            if (cols < 0) {
+                                if ((c >>> 6) == row.length) row = Arrays.copyOf(row, row.length * 2);
+                            } else if (c >= cols) {
+                                c++;
+                                continue;
+                            }
+                            if (b == '@') row[c >>> 6] |= 1L << (c & 63);
+                            c++;
+                            continue;
+                        }
+                        // Stop at EOF or an empty line (end of input block)
+                        if (c == 0) {
+                            eof = true;
+                            break;
+                        }
+                        if (cols < 0) {
+                            cols = c;
+                            row = Arrays.copyOf(row, (cols + 63) >>> 6);
+                            if (pending.capacity() < row.length * 8) {
+                                pending = ByteBuffer.allocate(row.length * 8).order(ByteOrder.nativeOrder());
+                            }
+                        }
+                        if (pending.remaining() < row.length * 8) flush(channel, pending);
+                        for (long word : row) pending.putLong(word);
+                        Arrays.fill(row, 0L);
+                        rows++;
+                        c = 0;
+                    }
+                }
+                flush(channel, pending);
+                return new BitGrid(channel, rows, Math.max(cols, 0));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer pending) throws IOException {
+            pending.flip();
+            while (pending.hasRemaining()) channel.write(pending);
+            pending.clear();
+        }
+
+        void readRow(int r, long[] dst) {
+            MappedByteBuffer region = regions[r / rowsPerRegion];
+            int base = (r % rowsPerRegion) * words * 8;
+            for (int w = 0; w < words; w++) dst[w] = region.getLong(base + w * 8);
+        }
+
+        void writeRow(int r, long[] src) {
+            MappedByteBuffer region = regions[r / rowsPerRegion];
+            int base = (r % rowsPerRegion) * words * 8;
+            for (int w = 0; w < words; w++) region.putLong(base + w * 8, src[w]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Usage: java PrintingDepartment2 --mapped < input.txt
+    //
+    // Runs the rounds directly on a BitGrid, 64 cells per word. Each round sweeps the rows
+    // top to bottom with a three-row window and writes every changed row back in place.
+    // Row r is written back as soon as it is scanned, but the scan of row r + 1 never reads
+    // it from the file: `up` is the in-memory copy taken before the write, and `down` is
+    // read before row r + 1 itself is touched. So every scan sees the grid as it was at the
+    // start of the round, the rounds are exactly as synchronous as the in-heap engines,
+    // and the heap holds only four rows.
+    static long peelMapped(BitGrid grid) {
+        long[] up = new long[grid.words];
+        long[] mid = new long[grid.words];
+        long[] down = new long[grid.words];
+        long[] next = new long[grid.words];
+        long totalRemoved = 0;
+
+        while (true) {
+            long removedThisRound = 0;
+            Arrays.fill(up, 0L);
+            grid.readRow(0, mid);
+            for (int r = 0; r < grid.rows; r++) {
+                if (r + 1 < grid.rows) grid.readRow(r + 1, down);
+                else Arrays.fill(down, 0L);
+
+                boolean changed = false;
+                for (int w = 0; w < grid.words; w++) {
+                    long removable = removableMask(up, mid, down, w);
+                    next[w] = mid[w] & ~removable;
+                    if (removable != 0) {
+                        removedThisRound += Long.bitCount(removable);
+                        changed = true;
+                    }
+                }
+                if (changed) grid.writeRow(r, next);
+
+                long[] recycled = up;
+                up = mid;
+                mid = down;
+                down = recycled;
+            }
+
+            // If we found nothing to remove this round, we are done!
+            if (removedThisRound == 0) return totalRemoved;
+            totalRemoved += removedThisRound;
+        }
+    }
+
+    // Rolls in word w of row `mid` with fewer than 4 paper neighbours.
+    private static long removableMask(long[] up, long[] mid, long[] down, int w) {
+        long cells = mid[w];
+        if (cells == 0) return 0L;
+        return fewerThanFour(cells,
+                up[w], down[w],
+                west(up, w), west(mid, w), west(down, w),
+                east(up, w), east(mid, w), east(down, w));
+    }
+
+    // Lanes of `cells` with fewer than 4 of the 8 neighbour masks set, in straight-line
+    // code so nothing is allocated per word. Two full adders and a half adder fold the
+    // 8 masks into a ones bit plus four "twos" carries (k1..k4); the count is
+    // ones + 2 * (k1 + k2 + k3 + k4), which stays below 4 exactly when at most one carry is set.
+    private static long fewerThanFour(long cells, long n0, long n1, long n2, long n3,
+                                      long n4, long n5, long n6, long n7) {
+        long x1 = n0 ^ n1, s1 = x1 ^ n2, k1 = (n0 & n1) | (x1 & n2);
+        long x2 = n3 ^ n4, s2 = x2 ^ n5, k2 = (n3 & n4) | (x2 & n5);
+        long s3 = n6 ^ n7, k3 = n6 & n7;
+        long x4 = s1 ^ s2, k4 = (s1 & s2) | (x4 & s3);
+        long twoCarries = (k1 & k2) | (k3 & k4) | ((k1 | k2) & (k3 | k4));
+        return cells & ~twoCarries;
+    }
+
+    // Bit c of the result is the cell at column c - 1 (the neighbour on the left).
+    private static long west(long[] row, int w) {
+        long carry = w > 0 ? row[w - 1] >>> 63 : 0L;
+        return (row[w] << 1) | carry;
+    }
+
+    // Bit c of the result is the cell at column c + 1 (the neighbour on the right).
+    private static long east(long[] row, int w) {
+        long carry = w + 1 < row.length ? row[w + 1] << 63 : 0L;
+        return (row[w] >>> 1) | carry;
     }
 
+    // ------------------------ configurable neighbourhoods ------------------------
+
+    // Which cells count as neighbours, and how few paper neighbours make a roll accessible.
+    // - "moore": every cell within `radius` steps in both directions, a (2r+1) x (2r+1) square.
+    // - "cross": the cells within `radius` steps along the same row or the same column.
+    // Both shapes are made of rectangles, so a count is a few lookups in a summed-area
+    // table: O(1) per cell whatever the radius, instead of O(r^2) neighbour checks.
+    // A diamond (von Neumann) shape is not a union of a few rectangles, so it is not offered;
+    // at radius 1 it is the same as "cross".
+    static final class Neighbourhood {
+        static final int DEFAULT_RADIUS = 1;
+        static final String DEFAULT_SHAPE = "moore";
+        static final int DEFAULT_THRESHOLD = 4;
+
+        final int radius;
+        final String shape;
+        final int threshold;
+        // Parsed once, so the per-cell count does not compare strings.
+        private final boolean moore;
+
+        Neighbourhood(int radius, String shape, int threshold) {
+            if (radius < 1) throw new IllegalArgumentException("Radius must be at least 1: " + radius);
+            if (!shape.equals("moore") && !shape.equals("cross")) {
+                throw new IllegalArgumentException("Unknown neighbourhood shape (moore or cross): " + shape);
+            }
+            this.radius = radius;
+            this.shape = shape;
+            this.threshold = threshold;
+            this.moore = shape.equals("moore");
+        }
+
+        // A radius past the grid's longer side reaches the same cells as that side, so
+        // cap it there; this also keeps r + radius and c + radius well inside an int.
+        Neighbourhood clampedTo(int rows, int cols) {
+            int limit = Math.max(rows, cols);
+            return radius <= limit ? this : new Neighbourhood(limit, shape, threshold);
+        }
+
+        // The puzzle's own rule: 8 neighbours, fewer than 4 of them paper.
+        boolean isDefault() {
+            return radius == DEFAULT_RADIUS && shape.equals(DEFAULT_SHAPE) && threshold == DEFAULT_THRESHOLD;
+        }
+
+        // sat[(r + 1) * (cols + 1) + c + 1] is the number of paper cells in rows 0..r, columns 0..c.
+        static int[] summedAreaTable(byte[] paper, int rows, int cols) {
+            int[] sat = new int[Math.multiplyExact(rows + 1, cols + 1)];
+            refresh(sat, paper, rows, cols, 0, 0);
+            return sat;
+        }
+
+        // Recomputes every entry that depends on a cell at or below fromRow and at or right
+        // of fromCol; nothing above or to the left of that corner can have changed.
+        static void refresh(int[] sat, byte[] paper, int rows, int cols, int fromRow, int fromCol) {
+            int width = cols + 1;
+            for (int r = fromRow; r < rows; r++) {
+                int row = (r + 1) * width;
+                for (int c = fromCol; c < cols; c++) {
+                    sat[row + c + 1] = paper[r * cols + c]
+                            + sat[row - width + c + 1] + sat[row + c] - sat[row - width + c];
+                }
+            }
+        }
+
+        // Paper cells in rows r0..r1 and columns c0..c1, clipped to the grid.
+        static int rectangle(int[] sat, int rows, int cols, int r0, int c0, int r1, int c1) {
+            int width = cols + 1;
+            r0 = Math.max(r0, 0);
+            c0 = Math.max(c0, 0);
+            r1 = Math.min(r1, rows - 1) + 1;
+            c1 = Math.min(c1, cols - 1) + 1;
+            return sat[r1 * width + c1] - sat[r0 * width + c1] - sat[r1 * width + c0] + sat[r0 * width + c0];
+        }
+
+        // Paper neighbours of the roll at (r, c), not counting the roll itself.
+        int count(int[] sat, int rows, int cols, int r, int c) {
+            if (moore) {
+                return rectangle(sat, rows, cols, r - radius, c - radius, r + radius, c + radius) - 1;
+            }
+            // The row arm and the column arm both include the roll itself.
+            return rectangle(sat, rows, cols, r, c - radius, r, c + radius)
+                    + rectangle(sat, rows, cols, r - radius, c, r + radius, c) - 2;
+        }
+    }
+
+    // Usage: java PrintingDepartment2 [--threads N | --mapped | tracked options | neighbourhood options] < input.txt
     public static void main(String[] args) {
+        RunOptions options = new RunOptions();
+        int radius = Neighbourhood.DEFAULT_RADIUS;
+        String shape = Neighbourhood.DEFAULT_SHAPE;
+        int threshold = Neighbourhood.DEFAULT_THRESHOLD;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    options.threads = Integer.parseInt(args[++i]);
+                    if (options.threads < 1) {
+                        throw new IllegalArgumentException("--threads must be at least 1: " + options.threads);
+                    }
+                    break;
+                case "--mapped":
+                    options.mapped = true;
+                    break;
+                case "--stats":
+                    options.stats = true;
+                    break;
+                case "--depth":
+                    options.depthFile = Paths.get(args[++i]);
+                    break;
+                case "--checkpoint":
+                    options.checkpointFile = Paths.get(args[++i]);
+                    break;
+                case "--checkpoint-every":
+                    options.checkpointEvery = Integer.parseInt(args[++i]);
+                    if (options.checkpointEvery < 1) {
+                        throw new IllegalArgumentException("--checkpoint-every must be at least 1: " + options.checkpointEvery);
+                    }
+                    break;
+                case "--resume":
+                    options.resumeFile = Paths.get(args[++i]);
+                    break;
+                case "--radius":
+                    radius = Integer.parseInt(args[++i]);
+                    break;
+                case "--shape":
+                    shape = args[++i];
+                    break;
+                case "--threshold":
+                    threshold = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        options.rule = new Neighbourhood(radius, shape, threshold);
+        if ((options.threads > 0 ? 1 : 0) + (options.mapped ? 1 : 0) + (options.tracked() ? 1 : 0)
+                + (options.rule.isDefault() ? 0 : 1) > 1) {
+            throw new IllegalArgumentException(
+                    "--threads, --mapped, the tracked options and a custom neighbourhood cannot be combined");
+        }
+
+        if (options.mapped) {
+            try (FastOutput out = new FastOutput();
+                 BitGrid grid = BitGrid.load(new BufferedInputStream(System.in, 1 << 16))) {
+                if (grid.rows > 0) out.println(peelMapped(grid));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (options.resumeFile != null) {
+            try (FastOutput out = new FastOutput()) {
+                peelTracked(Peeler.readCheckpoint(options.resumeFile), options, out);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            solve(sc, out, options);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -19,27 +19,36 @@
  *   Fresh IDs: 5 (in 3-5), 11 (in 10-14), 17 (in 16-20 & 12-18) → Answer: 3
  * 
  * ═══════════════════════════════════════════════════════════════════════════════
- * ALGORITHM: Brute Force Range Checking
+ * ALGORITHM: Sorted, Merged Range Index + Binary Search
  * ═══════════════════════════════════════════════════════════════════════════════
  * 
  * APPROACH:
- *   Step 1: Parse and store all fresh ranges as [start, end] pairs
- *   Step 2: For each available ingredient ID:
- *           - Check if it falls within ANY of the stored ranges
- *           - If ID >= range.start AND ID <= range.end → it's fresh
- *           - Once found in one range, no need to check others (break early)
- *   Step 3: Output the count of fresh ingredients
+ *   Step 1: Parse all fresh ranges into two primitive arrays: starts[] and ends[]
+ *   Step 2: Sort both arrays and merge overlapping/adjacent ranges into disjoint ones
+ *           (starts and ends can be sorted SEPARATELY - see FreshIndex.build)
+ *   Step 3: For each available ingredient ID:
+ *           - Binary search for the last merged range with start <= ID
+ *           - The ID is fresh exactly when ID <= that range's end
+ *   Step 4: Output the count of fresh ingredients
+ * 
+ * BATCH MODE (--batch):
+ *   Instead of one binary search per ID, the IDs are read into a long[] chunk,
+ *   sorted with Arrays.parallelSort, and counted in one merge-join sweep against
+ *   the merged ranges - both sides are walked front to back exactly once.
+ *   When the IDs do not fit in memory, each chunk is sorted and swept on its own:
+ *   freshness of one ID does not depend on any other, so the chunk counts just add up.
  * 
  * WHY THIS WORKS:
  *   - Ranges are INCLUSIVE on both ends (3-5 means 3, 4, 5 are all valid)
  *   - An ID is fresh if it matches AT LEAST ONE range (ranges can overlap)
- *   - Simple linear scan through ranges for each ID
+ *   - After merging, the ranges are disjoint and sorted, so at most ONE of them
+ *     can contain the ID: the last one starting at or before it
  * 
  * ═══════════════════════════════════════════════════════════════════════════════
  * COMPLEXITY ANALYSIS:
  * ═══════════════════════════════════════════════════════════════════════════════
- *   Time:  O(N * M) where N = number of ingredient IDs, M = number of ranges
- *   Space: O(M) to store all ranges
+ *   Time:  O(M log M + N log M) where N = number of ingredient IDs, M = number of ranges
+ *   Space: O(M) to store all ranges (two long[] arrays, no per-range objects)
  * 
  * IMPORTANT NOTE:
  *   - Using 'long' instead of 'int' because ingredient IDs can be up to ~560 trillion
@@ -56,54 +65,183 @@ public class Cafeteria {
     private static void solve(FastScanner sc, FastOutput out) throws Exception {
         
         // ─────────────────────────────────────────────────────────────────────
-        // STEP 1: Parse all fresh ingredient ID ranges
+        // STEP 1 + 2: Parse all fresh ranges, then sort and merge them
+        // ─────────────────────────────────────────────────────────────────────
+        FreshIndex index = FreshIndex.read(sc);
+        
         // ─────────────────────────────────────────────────────────────────────
-        // Store ranges as [start, end] pairs using long[] arrays
-        // Using long because IDs can exceed int range (up to ~560 trillion)
-        List<long[]> ranges = new ArrayList<>();
+        // STEP 3: Look up each available ingredient ID in the merged index
+        // ─────────────────────────────────────────────────────────────────────
+        // long, not int: with a billion IDs the count itself can pass 2^31
+        long freshCount = 0;
+        String line;
         
-        while (true) {
-            String line = sc.nextLine();
-            if (line == null || line.isEmpty()) break;  // Blank line = end of ranges
+        while ((line = sc.nextLine()) != null) {
+            if (line.isEmpty()) continue;
             
-            // Parse "start-end" format (e.g., "3-5" → start=3, end=5)
-            String[] parts = line.split("-");
-            long start = Long.parseLong(parts[0]);
-            long end = Long.parseLong(parts[1]);
-            ranges.add(new long[]{start, end});
+            if (index.contains(Long.parseLong(line))) {
+                freshCount++;
+            }
         }
         
         // ─────────────────────────────────────────────────────────────────────
-        // STEP 2: Check each available ingredient ID against all ranges
+        // STEP 4: Output the count of fresh ingredients
         // ─────────────────────────────────────────────────────────────────────
-        int freshCount = 0;
+        out.println(freshCount);
+    }
+
+    // Disjoint, sorted fresh ranges: [starts[i], ends[i]] for i < size, with a gap of at
+    // least one ID between consecutive ranges.
+    static final class FreshIndex {
+        final long[] starts;
+        final long[] ends;
+        final int size;
+
+        private FreshIndex(long[] starts, long[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        // Reads "start-end" lines up to the blank line that separates ranges from IDs.
+        static FreshIndex read(FastScanner sc) throws IOException {
+            // Using long because IDs can exceed int range (up to ~560 trillion)
+            long[] starts = new long[16];
+            long[] ends = new long[16];
+            int n = 0;
+            
+            while (true) {
+                String line = sc.nextLine();
+                if (line == null || line.isEmpty()) break;  // Blank line = end of ranges
+                
+                // Parse "start-end" format (e.g., "3-5" → start=3, end=5)
+                int dash = line.indexOf('-');
+                if (n == starts.length) {
+                    starts = Arrays.copyOf(starts, n * 2);
+                    ends = Arrays.copyOf(ends, n * 2);
+                }
+                starts[n] = Long.parseLong(line, 0, dash, 10);
+                ends[n] = Long.parseLong(line, dash + 1, line.length(), 10);
+                n++;
+            }
+            return build(starts, ends, n);
+        }
+
+        // Sorts and merges the first n ranges in place.
+        //
+        // Note: starts and ends are sorted INDEPENDENTLY, so no pairs have to be kept
+        // together. That still gives the right union: after sorting, the first i + 1
+        // starts all come before the first i + 1 ends, so ID coverage drops to zero
+        // between ends[i] and starts[i + 1] exactly when starts[i + 1] > ends[i] + 1.
+        // Those gaps are where one merged range stops and the next one begins.
+        static FreshIndex build(long[] starts, long[] ends, int n) {
+            Arrays.sort(starts, 0, n);
+            Arrays.sort(ends, 0, n);
+            
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || starts[i] > ends[i - 1] + 1) {
+                    // A gap (or the very first range): start a new merged range here
+                    starts[size++] = starts[i];
+                }
+                ends[size - 1] = ends[i];
+            }
+            return new FreshIndex(starts, ends, size);
+        }
+
+        // Binary search for the last merged range with start <= id.
+        // The loop always runs ceil(log2(size)) steps and only picks between two
+        // indices, which the JIT can turn into a conditional move instead of a branch.
+        boolean contains(long id) {
+            if (size == 0) return false;
+            int base = 0;
+            int n = size;
+            while (n > 1) {
+                int half = n >>> 1;
+                base = starts[base + half] <= id ? base + half : base;
+                n -= half;
+            }
+            return starts[base] <= id && id <= ends[base];
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // BATCH MODE: sort the IDs, then one linear merge-join sweep
+    // ─────────────────────────────────────────────────────────────────────────
+    // Usage: java Cafeteria --batch [--chunk N] < input.txt
+    
+    // Leave room for parallelSort's scratch buffer and the range index.
+    private static final long DEFAULT_CHUNK_BYTES = Runtime.getRuntime().maxMemory() / 4;
+    private static final int MAX_CHUNK = Integer.MAX_VALUE - 8;
+    
+    private static void solveBatch(FastScanner sc, FastOutput out, int chunkSize) throws Exception {
+        FreshIndex index = FreshIndex.read(sc);
+        
+        long freshCount = 0;
+        long[] ids = new long[Math.min(chunkSize, 1 << 16)];
+        int n = 0;
         String line;
         
         while ((line = sc.nextLine()) != null) {
             if (line.isEmpty()) continue;
             
-            long ingredientId = Long.parseLong(line);
-            
-            // Linear search through all ranges to find a match
-            // An ingredient is "fresh" if it falls within ANY range (inclusive)
-            for (long[] range : ranges) {
-                // Check: range[0] <= ingredientId <= range[1]
-                if (ingredientId >= range[0] && ingredientId <= range[1]) {
-                    freshCount++;   // Found in a valid range!
-                    break;          // No need to check remaining ranges
+            if (n == ids.length) {
+                if (n == chunkSize) {
+                    // Chunk is full: count it and reuse the array for the next one
+                    freshCount += countSorted(index, ids, n);
+                    n = 0;
+                } else {
+                    ids = Arrays.copyOf(ids, (int) Math.min((long) n * 2, chunkSize));
                 }
             }
+            ids[n++] = Long.parseLong(line);
         }
+        freshCount += countSorted(index, ids, n);
         
-        // ─────────────────────────────────────────────────────────────────────
-        // STEP 3: Output the count of fresh ingredients
-        // ─────────────────────────────────────────────────────────────────────
         out.println(freshCount);
     }
+    
+    // Sorts ids[0, n) and walks it alongside the merged ranges: the range pointer only
+    // moves forward, so the whole sweep is O(n + M) with purely sequential reads.
+    static long countSorted(FreshIndex index, long[] ids, int n) {
+        Arrays.parallelSort(ids, 0, n);
+        
+        long freshCount = 0;
+        int r = 0;
+        for (int i = 0; i < n && r < index.size; i++) {
+            long id = ids[i];
+            // Skip ranges that end before this ID - no later (larger) ID can use them either
+            while (r < index.size && index.ends[r] < id) r++;
+            if (r < index.size && index.starts[r] <= id) freshCount++;
+        }
+        return freshCount;
+    }
 
     public static void main(String[] args) {
+        boolean batch = false;
+        int chunkSize = (int) Math.min(MAX_CHUNK, Math.max(1 << 16, DEFAULT_CHUNK_BYTES / Long.BYTES));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch":
+                    batch = true;
+                    break;
+                case "--chunk":
+                    chunkSize = Integer.parseInt(args[++i]);
+                    if (chunkSize < 1 || chunkSize > MAX_CHUNK) {
+                        throw new IllegalArgumentException("--chunk must be between 1 and " + MAX_CHUNK + ": " + chunkSize);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
-            solve(sc, out);
+            if (batch) {
+                solveBatch(sc, out, chunkSize);
+            } else {
+                solve(sc, out);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -49,6 +49,7 @@
  */
 
 import java.io.*;
+import java.math.*;
 import java.util.*;
 
 public class TrashCompactor1 {
@@ -97,7 +98,10 @@ public class TrashCompactor1 {
         List<String> paddedNumberLines = paddedLines.subList(0, paddedLines.size() - 1);
         
         // Step 4: Scan columns to find and solve each problem
-        long grandTotal = 0;
+        // WideSum stays exact even if the total outgrows a long
+        WideSum grandTotal = new WideSum();
+        // One product accumulator, reset for every '*' problem
+        WideSum result = new WideSum();
         int col = 0;
         
         while (col < maxLen) {
@@ -133,23 +137,21 @@ public class TrashCompactor1 {
             }
             
             // Step 5: Calculate the result based on operator
-            long result;
             if (operator == '+') {
-                // Addition: start with 0, add all numbers
-                result = 0;
+                // Addition: the numbers can go straight into the grand total
                 for (long num : numbers) {
-                    result += num;
+                    grandTotal.add(num);
                 }
             } else {
                 // Multiplication: start with 1, multiply all numbers
-                result = 1;
+                // (widens to 128 bits if the product outgrows a long)
+                result.set(1);
                 for (long num : numbers) {
-                    result *= num;
+                    result.multiply(num);
                 }
+                // Add this problem's result to our grand total
+                grandTotal.add(result);
             }
-            
-            // Add this problem's result to our grand total
-            grandTotal += result;
         }
         
         // Output the answer!
@@ -169,6 +171,103 @@ public class TrashCompactor1 {
         return true;  // Every row has a space at this column
     }
 
+    // ------------------------ WideSum ------------------------
+
+    // Exact running total without BigInteger. It stays on a plain long until an add
+    // overflows (detected with the same sign test Math.addExact uses), then carries on
+    // as a two's-complement 128-bit (hi, lo) pair. Exact up to +/- 2^127.
+    static final class WideSum {
+        private long lo;
+        private long hi;
+        private boolean wide;
+
+        WideSum() {
+        }
+
+        // Starts over at a small value, so one accumulator can be reused.
+        void set(long value) {
+            lo = value;
+            hi = 0;
+            wide = false;
+        }
+
+        void add(long x) {
+            if (!wide) {
+                long r = lo + x;
+                if (((lo ^ r) & (x ^ r)) >= 0) {
+                    lo = r;
+                    return;
+                }
+                promote();
+            }
+            addWide(x >> 63, x);
+        }
+
+        // Adds the 128-bit value (xHi, xLo).
+        private void add(long xHi, long xLo) {
+            if (xHi == xLo >> 63) {
+                add(xLo);
+                return;
+            }
+            promote();
+            addWide(xHi, xLo);
+        }
+
+        void add(WideSum other) {
+            add(other.high(), other.low());
+        }
+
+        // Multiplies a non-negative total by a non-negative factor.
+        // Throws ArithmeticException if the product needs more than 127 bits.
+        void multiply(long factor) {
+            if (factor < 0 || high() < 0) {
+                throw new IllegalArgumentException("multiply() needs non-negative operands.");
+            }
+            if (!wide) {
+                long pLo = lo * factor;
+                if (Math.multiplyHigh(lo, factor) == 0 && pLo >= 0) {
+                    lo = pLo;
+                    return;
+                }
+                promote();
+            }
+            // (hi * 2^64 + lo) * factor, with lo treated as unsigned
+            long carry = Math.multiplyHigh(lo, factor) + ((lo >> 63) & factor);
+            long newHi = Math.addExact(Math.multiplyExact(hi, factor), carry);
+            if (newHi < 0) throw new ArithmeticException("Total exceeds 128 bits.");
+            hi = newHi;
+            lo = lo * factor;
+        }
+
+        long high() {
+            return wide ? hi : lo >> 63;
+        }
+
+        long low() {
+            return lo;
+        }
+
+        private void promote() {
+            if (!wide) {
+                hi = lo >> 63;
+                wide = true;
+            }
+        }
+
+        private void addWide(long xHi, long xLo) {
+            long r = lo + xLo;
+            long carry = Long.compareUnsigned(r, lo) < 0 ? 1 : 0;
+            lo = r;
+            hi += xHi + carry;
+        }
+
+        @Override
+        public String toString() {
+            if (!wide || hi == lo >> 63) return Long.toString(lo);
+            return BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo))).toString();
+        }
+    }
+
     public static void main(String[] args) {
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
             solve(sc, out);
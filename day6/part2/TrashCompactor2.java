@@ -38,6 +38,7 @@
  */
 
 import java.io.*;
+import java.math.*;
 import java.util.*;
 
 public class TrashCompactor2 {
@@ -105,7 +106,8 @@ public class TrashCompactor2 {
         }
         
         // Step 5: Process problems RIGHT-TO-LEFT
-        long grandTotal = 0;
+        WideSum grandTotal = new WideSum();  // exact even past Long.MAX_VALUE
+        WideSum result = new WideSum();      // product of one '*' problem, reset each time
         
         for (int p = problems.size() - 1; p >= 0; p--) {
             int startCol = problems.get(p)[0];
@@ -136,20 +138,17 @@ public class TrashCompactor2 {
             }
             
             // Step 7: Apply the operator
-            long result;
             if (operator == '+') {
-                result = 0;
                 for (long num : numbers) {
-                    result += num;
+                    grandTotal.add(num);
                 }
             } else {  // '*'
-                result = 1;
+                result.set(1);
                 for (long num : numbers) {
-                    result *= num;
+                    result.multiply(num);
                 }
+                grandTotal.add(result);
             }
-            
-            grandTotal += result;
         }
         
         out.println(grandTotal);
@@ -164,6 +163,103 @@ public class TrashCompactor2 {
         return true;
     }
 
+    // ------------------------ WideSum ------------------------
+
+    // Exact running total without BigInteger. It stays on a plain long until an add
+    // overflows (detected with the same sign test Math.addExact uses), then carries on
+    // as a two's-complement 128-bit (hi, lo) pair. Exact up to +/- 2^127.
+    static final class WideSum {
+        private long lo;
+        private long hi;
+        private boolean wide;
+
+        WideSum() {
+        }
+
+        // Starts over at a small value, so one accumulator can be reused.
+        void set(long value) {
+            lo = value;
+            hi = 0;
+            wide = false;
+        }
+
+        void add(long x) {
+            if (!wide) {
+                long r = lo + x;
+                if (((lo ^ r) & (x ^ r)) >= 0) {
+                    lo = r;
+                    return;
+                }
+                promote();
+            }
+            addWide(x >> 63, x);
+        }
+
+        // Adds the 128-bit value (xHi, xLo).
+        private void add(long xHi, long xLo) {
+            if (xHi == xLo >> 63) {
+                add(xLo);
+                return;
+            }
+            promote();
+            addWide(xHi, xLo);
+        }
+
+        void add(WideSum other) {
+            add(other.high(), other.low());
+        }
+
+        // Multiplies a non-negative total by a non-negative factor.
+        // Throws ArithmeticException if the product needs more than 127 bits.
+        void multiply(long factor) {
+            if (factor < 0 || high() < 0) {
+                throw new IllegalArgumentException("multiply() needs non-negative operands.");
+            }
+            if (!wide) {
+                long pLo = lo * factor;
+                if (Math.multiplyHigh(lo, factor) == 0 && pLo >= 0) {
+                    lo = pLo;
+                    return;
+                }
+                promote();
+            }
+            // (hi * 2^64 + lo) * factor, with lo treated as unsigned
+            long carry = Math.multiplyHigh(lo, factor) + ((lo >> 63) & factor);
+            long newHi = Math.addExact(Math.multiplyExact(hi, factor), carry);
+            if (newHi < 0) throw new ArithmeticException("Total exceeds 128 bits.");
+            hi = newHi;
+            lo = lo * factor;
+        }
+
+        long high() {
+            return wide ? hi : lo >> 63;
+        }
+
+        long low() {
+            return lo;
+        }
+
+        private void promote() {
+            if (!wide) {
+                hi = lo >> 63;
+                wide = true;
+            }
+        }
+
+        private void addWide(long xHi, long xLo) {
+            long r = lo + xLo;
+            long carry = Long.compareUnsigned(r, lo) < 0 ? 1 : 0;
+            lo = r;
+            hi += xHi + carry;
+        }
+
+        @Override
+        public String toString() {
+            if (!wide || hi == lo >> 63) return Long.toString(lo);
+            return BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo))).toString();
+        }
+    }
+
     public static void main(String[] args) {
         try (FastScanner sc = new FastScanner(); FastOutput out = new FastOutput()) {
             solve(sc, out);